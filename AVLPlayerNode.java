@@ -1,5 +1,18 @@
 package main;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 public class AVLPlayerNode {
     private Player data;
     private double value;
@@ -27,6 +40,140 @@ public class AVLPlayerNode {
         this.height = 1;
     }
 
+    /**
+     * Build a perfectly balanced AVL tree out of an array of players in one pass,
+     * players whose value duplicates an earlier one are skipped like insert does
+     * @param players the players, the array itself is left untouched
+     * @param key     extracts the value that AVL tree's BST property based on
+     * @return root of the tree, or null if there are no players
+     * Runtime: O(n) if players are already sorted by key, O(n log n) otherwise
+     */
+    public static AVLPlayerNode buildBalanced(Player[] players, ToDoubleFunction<Player> key) {
+        double[] keys = new double[players.length];
+        boolean sorted = true;
+        for (int i = 0; i < players.length; i++) {
+            keys[i] = key.applyAsDouble(players[i]);
+            sorted &= i == 0 || keys[i - 1] <= keys[i];
+        }
+        // sort the primitive keys and carry the players along by index, the sort is
+        // stable, so the first of several equal values is the one kept
+        int[] order = sorted ? null : sortedOrder(keys, keys.length);
+        Player[] data = new Player[players.length];
+        double[] values = new double[players.length];
+        int n = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (n == 0 || values[n - 1] != keys[i]) {
+                data[n] = players[order == null ? i : order[i]];
+                values[n] = keys[i];
+                n++;
+            }
+        }
+        return buildBalanced(data, values, 0, n, null);
+    }
+
+    /**
+     * Merge two trees into a new balanced tree holding the players of both. A player
+     * id found in both trees is resolved by a policy, and where two kept players share
+     * a value the one from the first tree is kept, like insert does. Both trees are consumed
+     * @param first         root of the first tree, may be null
+     * @param second        root of the second tree, may be null
+     * @param onIdCollision given the first and the second tree's player with the same id,
+     *                      returns the one to keep
+     * @return root of the merged tree, or null if both trees are empty
+     * Runtime: O(m + n) expected
+     */
+    public static AVLPlayerNode merge(AVLPlayerNode first, AVLPlayerNode second, BinaryOperator<Player> onIdCollision) {
+        int m = first == null ? 0 : first.size();
+        int n = second == null ? 0 : second.size();
+        Player[] firstData = new Player[m], secondData = new Player[n];
+        double[] firstValues = new double[m], secondValues = new double[n];
+        flatten(first, firstData, firstValues);
+        flatten(second, secondData, secondValues);
+
+        PlayerIdIndex kept = new PlayerIdIndex(m + n);
+        for (Player p : firstData) {
+            kept.add(p);
+        }
+        for (Player p : secondData) {
+            Player other = kept.get(p.getID());
+            if (other != null && other != p) {
+                kept.put(onIdCollision.apply(other, p));
+            } else {
+                kept.add(p);
+            }
+        }
+
+        Player[] data = new Player[m + n];
+        double[] values = new double[m + n];
+        int i = 0, j = 0, k = 0;
+        while (i < m || j < n) {
+            boolean takeFirst = j == n || (i < m && firstValues[i] <= secondValues[j]);
+            Player p = takeFirst ? firstData[i] : secondData[j];
+            double value = takeFirst ? firstValues[i++] : secondValues[j++];
+            if (kept.get(p.getID()) == p && (k == 0 || values[k - 1] != value)) {
+                data[k] = p;
+                values[k] = value;
+                k++;
+            }
+        }
+        return buildBalanced(data, values, 0, k, null);
+    }
+
+    /**
+     * Helper method, copy the players and values of a tree out in ascending order
+     * @param root   root of the tree, may be null
+     * @param data   receives the players
+     * @param values receives the values
+     * Runtime: O(n)
+     */
+    private static void flatten(AVLPlayerNode root, Player[] data, double[] values) {
+        if (root == null) {
+            return;
+        }
+        AVLPlayerNode cur = root;
+        while (cur.leftChild != null) {
+            cur = cur.leftChild;
+        }
+        for (int i = 0; cur != null; i++) {
+            data[i] = cur.data;
+            values[i] = cur.value;
+            cur = cur.successor();
+        }
+    }
+
+    /**
+     * Helper method, build a balanced subtree out of sorted, distinct values
+     * @param data   the players
+     * @param values the values of the players, in ascending order
+     * @param lo     first index of the subtree (inclusive)
+     * @param hi     last index of the subtree (exclusive)
+     * @param parent parent of the subtree's root
+     * @return root of the subtree
+     * Runtime: O(hi - lo)
+     */
+    private static AVLPlayerNode buildBalanced(Player[] data, double[] values, int lo, int hi, AVLPlayerNode parent) {
+        if (lo >= hi) {
+            return null;
+        }
+        int mid = (lo + hi) >>> 1;
+        AVLPlayerNode root = new AVLPlayerNode(data[mid], values[mid]);
+        root.parent = parent;
+        root.leftChild = buildBalanced(data, values, lo, mid, root);
+        root.rightChild = buildBalanced(data, values, mid + 1, hi, root);
+        root.rightWeight = hi - mid - 1;
+        root.updateHeightAndBF();
+        return root;
+    }
+
+    /**
+     * Getter method for value
+     * @return the value that AVL tree's BST property based on
+     * Runtime: O(1)
+     */
+    public double getValue() {
+        return value;
+    }
+
     /**
      * Getter method for left child
      * @return node's left child
@@ -132,12 +279,12 @@ public class AVLPlayerNode {
     }
 
     /**
-     * Check whether the node with given value exists in the AVL tree
+     * Find the node with given value in the AVL tree
      * @param value the value of node
-     * @return whether the node exists
+     * @return the node, or null if it is not in the AVL tree
      * Runtime: O(log n)
      */
-    private boolean hasNode(double value) {
+    private AVLPlayerNode findNode(double value) {
         AVLPlayerNode cur = this;
         while (cur != null && cur.value != value) {
             if (value < cur.value) {
@@ -146,86 +293,110 @@ public class AVLPlayerNode {
                 cur = cur.rightChild;
             }
         }
-        return cur != null;
+        return cur;
     }
 
     /**
-     * Helper method, insert a player with given value into the AVL tree
-     * @param newGuy the player
-     * @param value the value that AVL tree's BST property based on
+     * Walk from a node whose subtree just changed up to the root, adding delta to the
+     * right weight of every ancestor entered from its right side, and updating height
+     * and balance factor (rebalancing where needed) until a subtree height stops changing
+     * @param node      the lowest node whose subtree changed
+     * @param fromRight whether the change happened in node's right subtree
+     * @param delta     change in size of the changed subtree
      * @return root of the tree
      * Runtime: O(log n)
      */
-    public AVLPlayerNode insertHelper(Player newGuy, double value) {
-        if (value < this.value) {
-            if (this.leftChild == null) {
-                this.leftChild = new AVLPlayerNode(newGuy, value);
-            } else {
-                this.leftChild = this.leftChild.insertHelper(newGuy, value);
+    private static AVLPlayerNode retrace(AVLPlayerNode node, boolean fromRight, int delta) {
+        boolean adjusting = true;
+        while (true) {
+            if (fromRight) {
+                node.rightWeight += delta;
             }
-        } else {
-            if (this.rightChild == null) {
-                this.rightChild = new AVLPlayerNode(newGuy, value);
-            } else {
-                this.rightChild = this.rightChild.insertHelper(newGuy, value);
+            AVLPlayerNode up = node.parent;
+            boolean isRight = up != null && up.rightChild == node;
+            if (adjusting) {
+                int oldHeight = node.height;
+                node.updateHeightAndBF();
+                if (node.balanceFactor > 1 || node.balanceFactor < -1) {
+                    node = node.balance();
+                    if (isRight) {
+                        up.rightChild = node;
+                    } else if (up != null) {
+                        up.leftChild = node;
+                    }
+                }
+                adjusting = node.height != oldHeight;
             }
-            this.rightWeight++;
+            if (up == null) {
+                return node;
+            }
+            fromRight = isRight;
+            node = up;
         }
-        this.reconnectChildren();
-        // update height and balance factor, and balance the AVL tree
-        this.updateHeightAndBF();
-        return this.balance();
     }
 
     /**
-     * Insert a node into the AVL tree
+     * Insert a node into the AVL tree, nothing happens if the value is already present
      * @param newGuy the player
      * @param value  the value that AVL tree's BST property based on
      * @return root of the tree
      * Runtime: O(log n)
      */
     public AVLPlayerNode insert(Player newGuy, double value) {
-        return !hasNode(value) ? insertHelper(newGuy, value) : this;
+        AVLPlayerNode cur = this, parent = null;
+        while (cur != null) {
+            if (cur.value == value) {
+                return this;
+            }
+            parent = cur;
+            cur = value < cur.value ? cur.leftChild : cur.rightChild;
+        }
+        AVLPlayerNode node = new AVLPlayerNode(newGuy, value);
+        node.parent = parent;
+        boolean right = value > parent.value;
+        if (right) {
+            parent.rightChild = node;
+        } else {
+            parent.leftChild = node;
+        }
+        return retrace(parent, right, 1);
     }
 
     /**
-     * Helper method, delete a node with given value
-     * @param value the value of the node to be deleted
-     * @return  root of the tree
+     * Unlink a node from the AVL tree, a node with two children takes over its
+     * successor's player and value and the successor is unlinked instead
+     * @param node the node to be removed
+     * @return root of the tree, null if the tree is now empty
      * Runtime: O(log n)
      */
-    private AVLPlayerNode deleteHelper(double value) {
-        AVLPlayerNode root = this;
-        // if the node of given value is found, delete the node
-        if (this.value == value) {
-            if (this.leftChild == null && this.rightChild == null) {
-                return null;
-            } else if (this.leftChild != null && this.rightChild != null) {
-                AVLPlayerNode successor = this.rightChild;
-                while (successor.leftChild != null) {
-                    successor = successor.leftChild;
-                }
-                this.data = successor.data;
-                this.value = successor.value;
-                this.rightChild = this.rightChild.deleteHelper(successor.value);
-                this.rightWeight -= 1;
-            } else {
-                root = this.leftChild != null ? this.leftChild : this.rightChild;
+    private static AVLPlayerNode removeNode(AVLPlayerNode node) {
+        if (node.leftChild != null && node.rightChild != null) {
+            AVLPlayerNode successor = node.rightChild;
+            while (successor.leftChild != null) {
+                successor = successor.leftChild;
             }
-            root.parent = null;
+            node.data = successor.data;
+            node.value = successor.value;
+            node = successor;
+        }
+        AVLPlayerNode child = node.leftChild != null ? node.leftChild : node.rightChild;
+        AVLPlayerNode parent = node.parent;
+        if (child != null) {
+            child.parent = parent;
+        }
+        node.parent = null;
+        node.leftChild = null;
+        node.rightChild = null;
+        if (parent == null) {
+            return child;
+        }
+        boolean right = parent.rightChild == node;
+        if (right) {
+            parent.rightChild = child;
         } else {
-            // Search the node with given value
-            if (this.value < value && this.rightChild != null) {
-                this.rightChild = this.rightChild.deleteHelper(value);
-                this.rightWeight -= 1;
-            } else if (this.value > value && this.leftChild != null) {
-                this.leftChild = this.leftChild.deleteHelper(value);
-            }
+            parent.leftChild = child;
         }
-        root.reconnectChildren();
-        // update height and balance factor, and balance the AVL tree
-        this.updateHeightAndBF();
-        return root.balance();
+        return retrace(parent, right, -1);
     }
 
     /**
@@ -235,9 +406,345 @@ public class AVLPlayerNode {
      * Runtime: O(log n)
      */
     public AVLPlayerNode delete(double value) {
-        return hasNode(value) ? this.deleteHelper(value) : this;
+        AVLPlayerNode node = findNode(value);
+        return node != null ? removeNode(node) : this;
+    }
+
+
+    /**
+     * Replace both children of a detached node
+     * @param left        the new left subtree
+     * @param right       the new right subtree
+     * @param rightWeight number of nodes in the new right subtree
+     * Runtime: O(1)
+     */
+    private void setChildren(AVLPlayerNode left, AVLPlayerNode right, int rightWeight) {
+        this.leftChild = left;
+        this.rightChild = right;
+        this.rightWeight = rightWeight;
+        this.reconnectChildren();
+        this.updateHeightAndBF();
     }
 
+    /**
+     * Helper method, join two trees and a single node between them, every value in left
+     * being below mid's and every value in right above it. The shorter tree and mid are
+     * hung off the spine of the taller tree where the heights match, then retraced
+     * @param left      root of the lower tree, may be null
+     * @param mid       a detached node
+     * @param right     root of the upper tree, may be null
+     * @param rightSize number of nodes in the upper tree
+     * @return root of the joined tree
+     * Runtime: O(|height of left - height of right| + 1)
+     */
+    private static AVLPlayerNode join(AVLPlayerNode left, AVLPlayerNode mid, AVLPlayerNode right, int rightSize) {
+        int lh = left == null ? 0 : left.height;
+        int rh = right == null ? 0 : right.height;
+        if (lh > rh + 1) {
+            AVLPlayerNode parent = left, cur = left.rightChild;
+            while (cur != null && cur.height > rh + 1) {
+                parent = cur;
+                cur = cur.rightChild;
+            }
+            mid.setChildren(cur, right, rightSize);
+            mid.parent = parent;
+            parent.rightChild = mid;
+            return retrace(parent, true, rightSize + 1);
+        } else if (rh > lh + 1) {
+            AVLPlayerNode parent = right, cur = right.leftChild;
+            int curSize = rightSize - right.rightWeight - 1;
+            while (cur != null && cur.height > lh + 1) {
+                parent = cur;
+                curSize -= cur.rightWeight + 1;
+                cur = cur.leftChild;
+            }
+            mid.setChildren(left, cur, curSize);
+            mid.parent = parent;
+            parent.leftChild = mid;
+            return retrace(parent, false, 0);
+        }
+        mid.setChildren(left, right, rightSize);
+        mid.parent = null;
+        return mid;
+    }
+
+    /**
+     * Join this tree with a tree whose values are all above the values of this one,
+     * both trees are consumed
+     * @param greater root of the other tree, may be null
+     * @return root of the joined tree
+     * @throws IllegalArgumentException if the values of the trees overlap
+     * Runtime: O(log n)
+     */
+    public AVLPlayerNode join(AVLPlayerNode greater) {
+        if (greater == null) {
+            return this;
+        }
+        AVLPlayerNode max = this, min = greater;
+        while (max.rightChild != null) {
+            max = max.rightChild;
+        }
+        while (min.leftChild != null) {
+            min = min.leftChild;
+        }
+        if (max.value >= min.value) {
+            throw new IllegalArgumentException("trees to be joined overlap");
+        }
+        int greaterSize = greater.size();
+        // the lowest node of the greater tree has no left child, so it is unlinked as is
+        AVLPlayerNode rest = removeNode(min);
+        return join(this, min, rest, greaterSize - 1);
+    }
+
+    /**
+     * Helper method, split a detached tree around a value
+     * @param root  root of the tree, may be null
+     * @param size  number of nodes in the tree
+     * @param value the value to split at
+     * @param parts receives the roots of the nodes below value and of the nodes at or above it
+     * @return number of nodes below value
+     * Runtime: O(log n)
+     */
+    private static int split(AVLPlayerNode root, int size, double value, AVLPlayerNode[] parts) {
+        if (root == null) {
+            parts[0] = null;
+            parts[1] = null;
+            return 0;
+        }
+        AVLPlayerNode left = root.leftChild, right = root.rightChild;
+        int rightSize = root.rightWeight, leftSize = size - rightSize - 1;
+        if (left != null) {
+            left.parent = null;
+        }
+        if (right != null) {
+            right.parent = null;
+        }
+        root.parent = null;
+        if (root.value >= value) {
+            int below = split(left, leftSize, value, parts);
+            parts[1] = join(parts[1], root, right, rightSize);
+            return below;
+        }
+        int below = split(right, rightSize, value, parts);
+        parts[0] = join(left, root, parts[0], below);
+        return leftSize + 1 + below;
+    }
+
+    /**
+     * Split the tree around a value, the tree is consumed
+     * @param value the value to split at, which need not be in the tree
+     * @return the roots of the nodes below value and of the nodes at or above it, either may be null
+     * Runtime: O(log n)
+     */
+    public AVLPlayerNode[] split(double value) {
+        AVLPlayerNode[] parts = new AVLPlayerNode[2];
+        split(this, size(), value, parts);
+        return parts;
+    }
+
+    /**
+     * Get the node with the next smaller value
+     * @return the in-order predecessor, or null if this node has the smallest value
+     * Runtime: O(log n)
+     */
+    private AVLPlayerNode predecessor() {
+        AVLPlayerNode cur = this;
+        if (cur.leftChild != null) {
+            cur = cur.leftChild;
+            while (cur.rightChild != null) {
+                cur = cur.rightChild;
+            }
+            return cur;
+        }
+        while (cur.parent != null && cur.parent.leftChild == cur) {
+            cur = cur.parent;
+        }
+        return cur.parent;
+    }
+
+    /**
+     * Get the node with the next greater value
+     * @return the in-order successor, or null if this node has the greatest value
+     * Runtime: O(log n)
+     */
+    private AVLPlayerNode successor() {
+        AVLPlayerNode cur = this;
+        if (cur.rightChild != null) {
+            cur = cur.rightChild;
+            while (cur.leftChild != null) {
+                cur = cur.leftChild;
+            }
+            return cur;
+        }
+        while (cur.parent != null && cur.parent.rightChild == cur) {
+            cur = cur.parent;
+        }
+        return cur.parent;
+    }
+
+    /**
+     * Change the value of a player's node in place, if the new value still lies strictly
+     * between the values of its neighbours only the value is rewritten, otherwise the node
+     * is unlinked and its player reinserted under the new value. A player that is not in
+     * the tree, e.g. one left out for sharing its old value with another player, is
+     * inserted instead. Like delete followed by insert, the player is dropped if another
+     * node already holds the new value
+     * @param player   the player whose value changes
+     * @param oldValue the current value of the player
+     * @param newValue the new value of the player
+     * @return root of the tree
+     * Runtime: O(log n)
+     */
+    public AVLPlayerNode updateValue(Player player, double oldValue, double newValue) {
+        AVLPlayerNode node = findNode(oldValue);
+        if (node == null || node.data != player) {
+            return insert(player, newValue);
+        }
+        if (oldValue == newValue) {
+            return this;
+        }
+        AVLPlayerNode prev = node.predecessor(), next = node.successor();
+        if ((prev == null || prev.value < newValue) && (next == null || newValue < next.value)) {
+            node.value = newValue;
+            return this;
+        }
+        Player data = node.data;
+        AVLPlayerNode root = removeNode(node);
+        return root == null ? new AVLPlayerNode(data, newValue) : root.insert(data, newValue);
+    }
+
+    /**
+     * Move many nodes to new values at once. A handful of moves are applied one by one
+     * with updateValue, otherwise the tree is relinked in a single sorted sweep that drops
+     * the moved nodes, merges them back in at their new values and rebuilds the shape in
+     * place, reusing every node. Like updateValue, a player that is not in the tree is
+     * inserted, and a player is dropped if another node already holds its new value
+     * @param data      the players being moved
+     * @param oldValues current values of the moved nodes
+     * @param newValues new values of the moved nodes
+     * @param count     number of moves
+     * @return root of the tree
+     * Runtime: O(min(k log n, n + k log k))
+     */
+    public AVLPlayerNode updateValues(Player[] data, double[] oldValues, double[] newValues, int count) {
+        int n = size();
+        // per level, a single move costs about twice what the sweep spends per node, see MatchBatchBenchmark
+        if (2L * count * this.height < n) {
+            AVLPlayerNode root = this;
+            for (int i = 0; i < count && root != null; i++) {
+                root = root.updateValue(data[i], oldValues[i], newValues[i]);
+            }
+            return root;
+        }
+        double[] oldSorted = Arrays.copyOf(oldValues, count), newSorted = Arrays.copyOf(newValues, count);
+        int[] byOld = sortedOrder(oldSorted, count), byNew = sortedOrder(newSorted, count);
+
+        // first sweep: keep every node that does not hold one of the moving players
+        AVLPlayerNode[] keptNodes = new AVLPlayerNode[n], movedNodes = new AVLPlayerNode[count];
+        AVLPlayerNode cur = this;
+        while (cur.leftChild != null) {
+            cur = cur.leftChild;
+        }
+        int kept = 0;
+        for (int r = 0; cur != null; cur = cur.successor()) {
+            while (r < count && oldSorted[r] < cur.value) {
+                r++;
+            }
+            boolean moving = false;
+            for (int j = r; j < count && oldSorted[j] == cur.value; j++) {
+                if (data[byOld[j]] == cur.data) {
+                    movedNodes[byOld[j]] = cur;
+                    moving = true;
+                }
+            }
+            if (!moving) {
+                keptNodes[kept++] = cur;
+            }
+        }
+
+        // second sweep: merge every moving player back in at its new value
+        AVLPlayerNode[] nodes = new AVLPlayerNode[n + count];
+        int i = 0, m = 0, k = 0;
+        while (i < kept || m < count) {
+            AVLPlayerNode node;
+            if (m == count || (i < kept && keptNodes[i].value <= newSorted[m])) {
+                node = keptNodes[i++];
+            } else {
+                int move = byNew[m];
+                node = movedNodes[move] != null ? movedNodes[move] : new AVLPlayerNode(data[move], 0);
+                node.value = newSorted[m++];
+            }
+            if (k == 0 || nodes[k - 1].value != node.value) {
+                nodes[k++] = node;
+            }
+        }
+        return relink(nodes, 0, k, null);
+    }
+
+    /**
+     * Helper method, order values with a stable merge sort over primitive arrays
+     * @param values the values, sorted in place
+     * @param count  number of values
+     * @return the original index of each sorted value, equal values keep their order
+     * Runtime: O(count log count)
+     */
+    private static int[] sortedOrder(double[] values, int count) {
+        int[] order = new int[count], orderBuf = new int[count];
+        double[] valuesBuf = new double[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        double[] from = values, to = valuesBuf;
+        int[] fromOrder = order, toOrder = orderBuf;
+        for (int width = 1; width < count; width *= 2) {
+            for (int lo = 0; lo < count; lo += 2 * width) {
+                int mid = Math.min(lo + width, count), hi = Math.min(lo + 2 * width, count);
+                int i = lo, j = mid;
+                for (int k = lo; k < hi; k++) {
+                    if (j == hi || (i < mid && from[i] <= from[j])) {
+                        to[k] = from[i];
+                        toOrder[k] = fromOrder[i++];
+                    } else {
+                        to[k] = from[j];
+                        toOrder[k] = fromOrder[j++];
+                    }
+                }
+            }
+            double[] swapValues = from;
+            from = to;
+            to = swapValues;
+            int[] swapOrder = fromOrder;
+            fromOrder = toOrder;
+            toOrder = swapOrder;
+        }
+        if (from != values) {
+            System.arraycopy(from, 0, values, 0, count);
+        }
+        return fromOrder;
+    }
+
+    /**
+     * Helper method, link sorted nodes with distinct values into a balanced subtree
+     * @param nodes  the nodes, in ascending order of value
+     * @param lo     first index of the subtree (inclusive)
+     * @param hi     last index of the subtree (exclusive)
+     * @param parent parent of the subtree's root
+     * @return root of the subtree
+     * Runtime: O(hi - lo)
+     */
+    private static AVLPlayerNode relink(AVLPlayerNode[] nodes, int lo, int hi, AVLPlayerNode parent) {
+        if (lo >= hi) {
+            return null;
+        }
+        int mid = (lo + hi) >>> 1;
+        AVLPlayerNode root = nodes[mid];
+        root.parent = parent;
+        root.leftChild = relink(nodes, lo, mid, root);
+        root.rightChild = relink(nodes, mid + 1, hi, root);
+        root.rightWeight = hi - mid - 1;
+        root.updateHeightAndBF();
+        return root;
+    }
 
     /**
      * Update height and balance factor for the node
@@ -311,33 +818,313 @@ public class AVLPlayerNode {
     }
 
     /**
-     * Helper method, get the rank of the node that with a given value
+     * Get the rank of the node that with a given value. The walk never takes more steps
+     * than the tree is high, so a reader racing a writer cannot loop through a rotation
      * @param value the value of the node
-     * @param rank the rank of the node
      * @return the rank of node, returns -1 if node is not in the AVL tree
+     * @throws ConcurrentModificationException if the tree changed under the walk
      * Runtime: O(log n)
      */
-    private int getRankHelper(double value, int rank) {
-        if (this.value == value) {
-            return rank + this.rightWeight + 1;
-        } else if (this.value < value && this.rightChild != null) {
-            return this.rightChild.getRankHelper(value, rank);
-        } else if (this.value > value && this.leftChild != null) {
-            return this.leftChild.getRankHelper(value, rank + this.rightWeight + 1);
-        } else {
-            return -1;
+    //this should return the rank of the node with this.value == value
+    public int getRank(double value) {
+        int rank = 0, steps = this.height;
+        for (AVLPlayerNode cur = this; cur != null; steps--) {
+            if (steps == 0) {
+                throw new ConcurrentModificationException();
+            }
+            if (cur.value == value) {
+                return rank + cur.rightWeight + 1;
+            } else if (cur.value < value) {
+                cur = cur.rightChild;
+            } else {
+                rank += cur.rightWeight + 1;
+                cur = cur.leftChild;
+            }
         }
+        return -1;
     }
 
     /**
-     * Get the rank of the node that with a given value
-     * @param value the value of the node
-     * @return the rank of node, returns -1 if node is not in the AVL tree
+     * Helper method, get the node at a given rank, taking no more steps than the tree is high
+     * @param rank the rank, 1 being the node with the highest value
+     * @return the node, or null if rank is out of range
+     * @throws ConcurrentModificationException if the tree changed under the walk
      * Runtime: O(log n)
      */
-    //this should return the rank of the node with this.value == value
-    public int getRank(double value) {
-        return this.getRankHelper(value, 0);
+    private AVLPlayerNode nodeAtRank(int rank) {
+        AVLPlayerNode cur = this;
+        for (int steps = this.height; cur != null; steps--) {
+            if (steps == 0) {
+                throw new ConcurrentModificationException();
+            }
+            int own = cur.rightWeight + 1;
+            if (rank == own) {
+                return cur;
+            } else if (rank < own) {
+                cur = cur.rightChild;
+            } else {
+                rank -= own;
+                cur = cur.leftChild;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the player at a given rank
+     * @param rank the rank, 1 being the player with the highest value
+     * @return the player, or null if rank is out of range
+     * Runtime: O(log n)
+     */
+    public Player getPlayerAtRank(int rank) {
+        AVLPlayerNode node = rank > 0 ? nodeAtRank(rank) : null;
+        return node != null ? node.data : null;
+    }
+
+    /**
+     * Get the number of nodes in the AVL tree, by summing right weights down the left spine
+     * @return number of nodes
+     * Runtime: O(log n)
+     */
+    public int size() {
+        int n = 0;
+        for (AVLPlayerNode cur = this; cur != null; cur = cur.leftChild) {
+            n += cur.rightWeight + 1;
+        }
+        return n;
+    }
+
+    /**
+     * Get one page of the leaderboard, ordered from the highest value to lowest
+     * @param startRank rank of the first player on the page, 1 being the highest value
+     * @param pageSize  maximum number of players on the page
+     * @return the players on the page, shorter than pageSize at the end of the leaderboard
+     * Runtime: O(log n + pageSize)
+     */
+    public Player[] leaderboardPage(int startRank, int pageSize) {
+        int n = size();
+        if (startRank < 1 || startRank > n || pageSize <= 0) {
+            return new Player[0];
+        }
+        Player[] page = new Player[Math.min(pageSize, n - startRank + 1)];
+        AVLPlayerNode cur = nodeAtRank(startRank);
+        for (int i = 0; i < page.length; i++) {
+            page[i] = cur.data;
+            cur = cur.predecessor();
+        }
+        return page;
+    }
+
+    /**
+     * Get an iterator over the players from the lowest value to highest, the tree
+     * must not be modified while the iterator is in use
+     * @return the iterator
+     * Runtime: O(log n), then O(1) amortized per player
+     */
+    public Iterator<Player> ascendingIterator() {
+        AVLPlayerNode first = this;
+        while (first.leftChild != null) {
+            first = first.leftChild;
+        }
+        return new PlayerIterator(first, true);
+    }
+
+    /**
+     * Get an iterator over the players from the highest value to lowest, the tree
+     * must not be modified while the iterator is in use
+     * @return the iterator
+     * Runtime: O(log n), then O(1) amortized per player
+     */
+    public Iterator<Player> descendingIterator() {
+        AVLPlayerNode first = this;
+        while (first.rightChild != null) {
+            first = first.rightChild;
+        }
+        return new PlayerIterator(first, false);
+    }
+
+    /**
+     * Get a spliterator over the players from the lowest value to highest, which splits
+     * by rank into halves of known size, the tree must not be modified while it is in use
+     * @return the spliterator
+     * Runtime: O(log n)
+     */
+    public Spliterator<Player> spliterator() {
+        int n = size();
+        return new PlayerSpliterator(this, n, 0, n);
+    }
+
+    /**
+     * Get a sequential stream of the players from the lowest value to highest
+     * @return the stream
+     * Runtime: O(log n)
+     */
+    public Stream<Player> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Get a parallel stream of the players, in encounter order from the lowest value to highest
+     * @return the stream
+     * Runtime: O(log n)
+     */
+    public Stream<Player> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    /**
+     * Helper method, get the node with the greatest value not above a given value
+     * @param value the value
+     * @return the node, or null if every value is above it
+     * Runtime: O(log n)
+     */
+    private AVLPlayerNode floorNode(double value) {
+        AVLPlayerNode cur = this, best = null;
+        while (cur != null) {
+            if (cur.value <= value) {
+                best = cur;
+                cur = cur.rightChild;
+            } else {
+                cur = cur.leftChild;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Helper method, get the node with the lowest value not below a given value
+     * @param value the value
+     * @return the node, or null if every value is below it
+     * Runtime: O(log n)
+     */
+    private AVLPlayerNode ceilingNode(double value) {
+        AVLPlayerNode cur = this, best = null;
+        while (cur != null) {
+            if (cur.value >= value) {
+                best = cur;
+                cur = cur.leftChild;
+            } else {
+                cur = cur.rightChild;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Get the player with the greatest value not above a given value
+     * @param value the value, which need not be in the AVL tree
+     * @return the player, or null if every value is above it
+     * Runtime: O(log n)
+     */
+    public Player floor(double value) {
+        AVLPlayerNode node = floorNode(value);
+        return node != null ? node.data : null;
+    }
+
+    /**
+     * Get the player with the lowest value not below a given value
+     * @param value the value, which need not be in the AVL tree
+     * @return the player, or null if every value is below it
+     * Runtime: O(log n)
+     */
+    public Player ceiling(double value) {
+        AVLPlayerNode node = ceilingNode(value);
+        return node != null ? node.data : null;
+    }
+
+    /**
+     * Helper method, count the nodes whose value is above a given value
+     * @param value     the value
+     * @param inclusive whether nodes equal to value are counted as well
+     * @return number of nodes
+     * Runtime: O(log n)
+     */
+    private int countAbove(double value, boolean inclusive) {
+        int count = 0;
+        AVLPlayerNode cur = this;
+        while (cur != null) {
+            if (cur.value > value || (inclusive && cur.value == value)) {
+                count += cur.rightWeight + 1;
+                cur = cur.leftChild;
+            } else {
+                cur = cur.rightChild;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Count the players whose value lies in [lo, hi]
+     * @param lo lowest value counted
+     * @param hi highest value counted
+     * @return number of players
+     * Runtime: O(log n)
+     */
+    public int countInRange(double lo, double hi) {
+        return lo <= hi ? countAbove(lo, true) - countAbove(hi, false) : 0;
+    }
+
+    /**
+     * Get an iterator over the players whose value lies in [lo, hi], from the lowest
+     * value to highest, the tree must not be modified while the iterator is in use
+     * @param lo lowest value visited
+     * @param hi highest value visited
+     * @return the iterator
+     * Runtime: O(log n), then O(1) amortized per player
+     */
+    public Iterator<Player> rangeIterator(double lo, double hi) {
+        return new PlayerIterator(lo <= hi ? ceilingNode(lo) : null, true, hi);
+    }
+
+    /**
+     * Helper method, write the parenthesized subtree, a subtree beyond the depth limit
+     * or the node budget is written as (...)
+     * @param out      where the tree is written
+     * @param depth    depth of this node, the root being at depth 1
+     * @param maxDepth deepest level that is written
+     * @param budget   number of nodes that may still be written
+     * @return number of nodes that may still be written afterwards
+     * @throws IOException if out fails to append
+     * Runtime: O(min(n, budget))
+     */
+    private int treeStringHelper(Appendable out, int depth, int maxDepth, int budget) throws IOException {
+        if (depth > maxDepth || budget <= 0) {
+            out.append("(...)");
+            return budget;
+        }
+        budget--;
+        out.append('(');
+        if (this.leftChild != null) {
+            budget = this.leftChild.treeStringHelper(out, depth + 1, maxDepth, budget);
+        }
+        out.append(this.data.getName());
+        if (this.rightChild != null) {
+            budget = this.rightChild.treeStringHelper(out, depth + 1, maxDepth, budget);
+        }
+        out.append(')');
+        return budget;
+    }
+
+    /**
+     * Write a parenthesized representation of the top of the AVL tree
+     * @param out      where the tree is written
+     * @param maxDepth deepest level that is written, the root being at depth 1
+     * @param maxNodes maximum number of nodes that are written
+     * @throws IOException if out fails to append
+     * Runtime: O(min(n, maxNodes))
+     */
+    public void treeString(Appendable out, int maxDepth, int maxNodes) throws IOException {
+        treeStringHelper(out, 1, maxDepth, maxNodes);
+    }
+
+    /**
+     * Write a parenthesized representation of the whole AVL tree
+     * @param out where the tree is written
+     * @throws IOException if out fails to append
+     * Runtime: O(n)
+     */
+    public void treeString(Appendable out) throws IOException {
+        treeStringHelper(out, 1, Integer.MAX_VALUE, Integer.MAX_VALUE);
     }
 
     /**
@@ -346,32 +1133,42 @@ public class AVLPlayerNode {
      * Runtime: O(n)
      */
     public String treeString() {
-        //TODO
-        String l = "", r = "";
-        if (this.leftChild != null) {
-            l = this.leftChild.treeString();
-        }
-        if (this.rightChild != null) {
-            r = this.rightChild.treeString();
+        StringBuilder sb = new StringBuilder();
+        try {
+            treeString(sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder never throws
         }
-        return String.format("(%s%s%s)", l, this.data.getName(), r);
+        return sb.toString();
     }
 
     /**
-     * Helper method, get the full scoreboard ordered from the highest value to lowest
-     * @return the string representation of scoreboard
+     * Helper method, write the scoreboard rows of the subtree from the highest value to lowest
+     * @param out where the rows are written
+     * @throws IOException if out fails to append
      * Runtime: O(n)
      */
-    private String scoreboardHelper() {
-        String res = "";
+    private void scoreboardHelper(Appendable out) throws IOException {
         if (this.rightChild != null) {
-            res += this.rightChild.scoreboardHelper();
+            this.rightChild.scoreboardHelper(out);
         }
-        res += String.format("%s\t%s\t%s\n", this.data.getName(), this.data.getID(), this.data.getELO());
+        out.append(this.data.getName()).append('\t')
+                .append(String.valueOf(this.data.getID())).append('\t')
+                .append(String.valueOf(this.data.getELO())).append('\n');
         if (this.leftChild != null) {
-            res += this.leftChild.scoreboardHelper();
+            this.leftChild.scoreboardHelper(out);
         }
-        return res;
+    }
+
+    /**
+     * Write the full scoreboard ordered from the highest value to lowest
+     * @param out where the scoreboard is written
+     * @throws IOException if out fails to append
+     * Runtime: O(n)
+     */
+    public void scoreboard(Appendable out) throws IOException {
+        out.append("NAME\tID\tSCORE\n");
+        scoreboardHelper(out);
     }
 
     /**
@@ -380,6 +1177,147 @@ public class AVLPlayerNode {
      * Runtime: O(n)
      */
     public String scoreboard() {
-        return "NAME\tID\tSCORE\n" + scoreboardHelper();
+        StringBuilder sb = new StringBuilder();
+        try {
+            scoreboard(sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder never throws
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Iterator that follows in-order successors or predecessors through the parent pointers
+     */
+    private static class PlayerIterator implements Iterator<Player> {
+        private AVLPlayerNode next;
+        private final boolean ascending;
+        private final double last;
+
+        /**
+         * Constructor, initialize an iterator over every node from the first one on
+         * @param first     the first node to visit
+         * @param ascending whether to visit nodes from the lowest value to highest
+         * Runtime: O(1)
+         */
+        PlayerIterator(AVLPlayerNode first, boolean ascending) {
+            this(first, ascending, ascending ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY);
+        }
+
+        /**
+         * Constructor, initialize an iterator that stops after a given value
+         * @param first     the first node to visit
+         * @param ascending whether to visit nodes from the lowest value to highest
+         * @param last      the value past which no node is visited
+         * Runtime: O(1)
+         */
+        PlayerIterator(AVLPlayerNode first, boolean ascending, double last) {
+            this.ascending = ascending;
+            this.last = last;
+            this.next = inRange(first) ? first : null;
+        }
+
+        /**
+         * Check whether a node is not past the last value
+         * @param node the node
+         * @return whether the node should be visited
+         * Runtime: O(1)
+         */
+        private boolean inRange(AVLPlayerNode node) {
+            return node != null && (ascending ? node.value <= last : node.value >= last);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Player next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            AVLPlayerNode cur = next;
+            next = ascending ? cur.successor() : cur.predecessor();
+            if (!inRange(next)) {
+                next = null;
+            }
+            return cur.data;
+        }
+    }
+
+    /**
+     * Spliterator over the players whose position from the lowest value is in [lo, hi)
+     */
+    private static class PlayerSpliterator implements Spliterator<Player> {
+        private final AVLPlayerNode root;
+        private final int size;
+        private int lo;
+        private final int hi;
+        private AVLPlayerNode cur;
+
+        /**
+         * Constructor, initialize a spliterator over a range of positions
+         * @param root root of the tree
+         * @param size number of nodes in the tree
+         * @param lo   first position (inclusive), 0 being the lowest value
+         * @param hi   last position (exclusive)
+         * Runtime: O(1)
+         */
+        PlayerSpliterator(AVLPlayerNode root, int size, int lo, int hi) {
+            this.root = root;
+            this.size = size;
+            this.lo = lo;
+            this.hi = hi;
+            this.cur = null;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Player> action) {
+            if (lo >= hi) {
+                return false;
+            }
+            if (cur == null) {
+                cur = root.nodeAtRank(size - lo);
+            }
+            action.accept(cur.data);
+            cur = cur.successor();
+            lo++;
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Player> action) {
+            if (lo < hi && cur == null) {
+                cur = root.nodeAtRank(size - lo);
+            }
+            for (; lo < hi; lo++) {
+                action.accept(cur.data);
+                cur = cur.successor();
+            }
+        }
+
+        @Override
+        public Spliterator<Player> trySplit() {
+            if (hi - lo < 2) {
+                return null;
+            }
+            int mid = (lo + hi) >>> 1;
+            PlayerSpliterator prefix = new PlayerSpliterator(root, size, lo, mid);
+            prefix.cur = this.cur;
+            this.lo = mid;
+            this.cur = null;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return hi - lo;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | NONNULL;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,193 @@
+package main;
+
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+public class ConcurrentLeaderboard {
+    private static final int OPTIMISTIC_TRIES = 3;
+
+    private final StampedLock lock;
+    private AVLPlayerNode eloTree;
+    private final PlayerIdIndex idIndex;
+
+    /**
+     * Constructor, initialize a thread-safe leaderboard holding the given players
+     * @param players the players, a later player with a duplicate id or ELO is skipped
+     * Runtime: O(n log n), O(n) if players are sorted by ELO
+     */
+    public ConcurrentLeaderboard(Player[] players) {
+        this.lock = new StampedLock();
+        this.eloTree = AVLPlayerNode.buildBalanced(players, Player::getELO);
+        this.idIndex = new PlayerIdIndex(players.length);
+        for (Player p : players) {
+            if (eloTree.getPlayer(p.getELO()) == p) {
+                idIndex.add(p);
+            }
+        }
+    }
+
+    /**
+     * Run a read first under optimistic stamps, retrying when a writer got in the way,
+     * and under the shared read lock once the optimistic tries are used up. A read that
+     * overlaps a rotation may see a half-updated tree and throw, which is treated as a
+     * conflict as long as the stamp turns out to be invalid. Only single root-to-leaf
+     * walks, which AVLPlayerNode caps at the tree height, may run optimistically
+     * @param read the read, which must not modify anything
+     * @return result of the read
+     * Runtime: O(cost of read)
+     */
+    private <T> T read(Supplier<T> read) {
+        for (int i = 0; i < OPTIMISTIC_TRIES; i++) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp == 0) {
+                continue;
+            }
+            try {
+                T result = read.get();
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                if (lock.validate(stamp)) {
+                    throw e;
+                }
+            }
+        }
+        return readLocked(read);
+    }
+
+    /**
+     * Run a read under the shared read lock
+     * @param read the read, which must not modify anything
+     * @return result of the read
+     * Runtime: O(cost of read)
+     */
+    private <T> T readLocked(Supplier<T> read) {
+        long stamp = lock.readLock();
+        try {
+            return read.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Get the player with given id
+     * @param id the id of the player
+     * @return the player, or null if no player has this id
+     * Runtime: O(1) expected
+     */
+    public Player getPlayer(int id) {
+        return read(() -> idIndex.get(id));
+    }
+
+    /**
+     * Get the rank of the player with given id
+     * @param id the id of the player
+     * @return the rank, 1 being the highest ELO, or -1 if no player has this id
+     * Runtime: O(log n)
+     */
+    public int getRank(int id) {
+        return read(() -> {
+            Player p = idIndex.get(id);
+            return p != null && eloTree != null ? eloTree.getRank(p.getELO()) : -1;
+        });
+    }
+
+    /**
+     * Get the player at a given rank
+     * @param rank the rank, 1 being the highest ELO
+     * @return the player, or null if rank is out of range
+     * Runtime: O(log n)
+     */
+    public Player getPlayerAtRank(int rank) {
+        return read(() -> eloTree != null ? eloTree.getPlayerAtRank(rank) : null);
+    }
+
+    /**
+     * Get one page of the leaderboard, ordered from the highest ELO to lowest. Walking a
+     * page follows parent pointers that a rotation rewrites, so it takes the read lock
+     * @param startRank rank of the first player on the page
+     * @param pageSize  maximum number of players on the page
+     * @return the players on the page
+     * Runtime: O(log n + pageSize)
+     */
+    public Player[] leaderboardPage(int startRank, int pageSize) {
+        return readLocked(() -> eloTree != null ? eloTree.leaderboardPage(startRank, pageSize) : new Player[0]);
+    }
+
+    /**
+     * Getter method for size
+     * @return number of players on the leaderboard
+     * Runtime: O(1)
+     */
+    public int size() {
+        return read(idIndex::size);
+    }
+
+    /**
+     * Add a player to the leaderboard
+     * @param p the player
+     * @return whether the player was added, false if the id or the ELO is taken
+     * Runtime: O(log n)
+     */
+    public boolean addPlayer(Player p) {
+        long stamp = lock.writeLock();
+        try {
+            if (idIndex.get(p.getID()) != null || (eloTree != null && eloTree.getPlayer(p.getELO()) != null)) {
+                return false;
+            }
+            idIndex.add(p);
+            eloTree = eloTree == null ? new AVLPlayerNode(p, p.getELO()) : eloTree.insert(p, p.getELO());
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Remove a player from the leaderboard
+     * @param id the id of the player
+     * @return the removed player, or null if no player has this id
+     * Runtime: O(log n)
+     */
+    public Player removePlayer(int id) {
+        long stamp = lock.writeLock();
+        try {
+            Player p = idIndex.remove(id);
+            // a match can leave a player out of the ELO tree when its new ELO is taken,
+            // and then the node at that ELO belongs to someone else
+            if (p != null && eloTree != null && eloTree.getPlayer(p.getELO()) == p) {
+                eloTree = eloTree.delete(p.getELO());
+            }
+            return p;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Log the outcome of a match and move both players on the leaderboard
+     * @param id1     id of the first player
+     * @param id2     id of the second player
+     * @param outcome 1 if the first player won, 2 if the second player won, 0 for a draw
+     * @return whether the match was applied, false for an unknown id or outcome or the same id twice
+     * Runtime: O(log n)
+     */
+    public boolean logMatch(int id1, int id2, int outcome) {
+        long stamp = lock.writeLock();
+        try {
+            Player p1 = idIndex.get(id1), p2 = idIndex.get(id2);
+            if (p1 == null || p2 == null || id1 == id2 || outcome < 0 || outcome > 2) {
+                return false;
+            }
+            double elo1 = p1.getELO(), elo2 = p2.getELO();
+            Player.applyOutcome(p1, p2, outcome);
+            eloTree = eloTree.updateValue(p1, elo1, p1.getELO());
+            eloTree = eloTree.updateValue(p2, elo2, p2.getELO());
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package main;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ConcurrentLeaderboardBenchmark {
+    private static volatile boolean running;
+
+    // arguments: [players] [seconds per run] [most reader threads]
+    public static void main(String[] args) throws InterruptedException {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 2.0;
+        int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        Player[] players = new Player[n];
+        for (int i = 0; i < n; i++) {
+            players[i] = new Player("p" + i, i, 1000.0 + 2000.0 * i / n);
+        }
+        ConcurrentLeaderboard board = new ConcurrentLeaderboard(players);
+
+        // warm up the read and write paths before measuring
+        run(board, n, 1, true, 0.5);
+        System.out.printf("%d players, %d cores\n", n, Runtime.getRuntime().availableProcessors());
+        System.out.println("readers\twriter\tgetRank/sec\tper reader\tmatches/sec");
+        for (int threads = 1; ; threads = Math.min(threads * 2, maxThreads)) {
+            for (boolean writer : new boolean[]{false, true}) {
+                long[] result = run(board, n, threads, writer, seconds);
+                System.out.printf("%d\t%s\t%.0f\t%.0f\t%.0f\n", threads, writer ? "yes" : "no",
+                        result[0] / seconds, result[0] / seconds / threads, result[1] / seconds);
+            }
+            if (threads >= maxThreads) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Run reader threads looking up ranks of random players, optionally alongside one
+     * writer thread logging random matches, for a fixed time
+     * @param board   the leaderboard
+     * @param n       number of players, ids are 0 to n - 1
+     * @param threads number of reader threads
+     * @param writer  whether a writer thread runs too
+     * @param seconds how long to run
+     * @return number of reads and number of matches done
+     * @throws InterruptedException if interrupted while waiting for the threads
+     * Runtime: O(seconds)
+     */
+    private static long[] run(ConcurrentLeaderboard board, int n, int threads, boolean writer, double seconds)
+            throws InterruptedException {
+        AtomicLong reads = new AtomicLong(), matches = new AtomicLong();
+        Thread[] workers = new Thread[threads + (writer ? 1 : 0)];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long count = 0;
+                int sink = 0;
+                while (running) {
+                    sink += board.getRank(random.nextInt(n));
+                    count++;
+                }
+                reads.addAndGet(count + (sink == Integer.MIN_VALUE ? 1 : 0));
+            });
+        }
+        if (writer) {
+            workers[threads] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long count = 0;
+                while (running) {
+                    board.logMatch(random.nextInt(n), random.nextInt(n), random.nextInt(3));
+                    count++;
+                }
+                matches.addAndGet(count);
+            });
+        }
+        running = true;
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        Thread.sleep((long) (seconds * 1000));
+        running = false;
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return new long[]{reads.get(), matches.get()};
+    }
+}
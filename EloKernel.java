@@ -0,0 +1,55 @@
+package main;
+
+public final class EloKernel {
+    private EloKernel() {
+    }
+
+    /**
+     * Compute the rating changes of many independent matches. The arithmetic is the same,
+     * operation by operation, as Player.logVictory and Player.stalemate with the default
+     * EloRatingEngine and no expected-score table, so the documented tolerance is zero:
+     * rating + delta is bit-identical to the rating Player ends on. The strengths are
+     * computed in one loop and the expected scores in a second, branch-free loop over
+     * primitive arrays that the JIT can compile to SIMD instructions; the Math.pow loop
+     * stays scalar
+     * @param k        the K-factor, EloRatingEngine.K_FACTOR to match Player
+     * @param ratings1 ratings of the first players
+     * @param ratings2 ratings of the second players
+     * @param scores1  scores of the first players, 1 for a win, 0.5 for a draw, 0 for a loss
+     * @param deltas1  receives the rating changes of the first players
+     * @param deltas2  receives the rating changes of the second players
+     * @param n        number of matches
+     * Runtime: O(n)
+     */
+    public static void deltas(double k, double[] ratings1, double[] ratings2, double[] scores1,
+                              double[] deltas1, double[] deltas2, int n) {
+        // the output arrays hold the strengths until the second loop overwrites them
+        for (int i = 0; i < n; i++) {
+            deltas1[i] = Math.pow(10.0, ratings1[i] / 400.0);
+            deltas2[i] = Math.pow(10.0, ratings2[i] / 400.0);
+        }
+        for (int i = 0; i < n; i++) {
+            double strength1 = deltas1[i], strength2 = deltas2[i];
+            double total = strength1 + strength2;
+            double score1 = scores1[i];
+            deltas1[i] = k * (score1 - strength1 / total);
+            deltas2[i] = k * ((1.0 - score1) - strength2 / total);
+        }
+    }
+
+    /**
+     * Compute the rating changes of one match, the scalar fallback for callers that do
+     * not have a batch. Gives the same result as deltas for a batch of one
+     * @param k       the K-factor, EloRatingEngine.K_FACTOR to match Player
+     * @param rating1 rating of the first player
+     * @param rating2 rating of the second player
+     * @param score1  score of the first player, 1 for a win, 0.5 for a draw, 0 for a loss
+     * @return the rating changes of the first and the second player
+     * Runtime: O(1)
+     */
+    public static double[] delta(double k, double rating1, double rating2, double score1) {
+        double strength1 = Math.pow(10.0, rating1 / 400.0), strength2 = Math.pow(10.0, rating2 / 400.0);
+        double total = strength1 + strength2;
+        return new double[]{k * (score1 - strength1 / total), k * ((1.0 - score1) - strength2 / total)};
+    }
+}
@@ -0,0 +1,70 @@
+package main;
+
+import java.util.Random;
+
+public class EloKernelBenchmark {
+    // arguments: [matches] [rounds]
+    public static void main(String[] args) {
+        int m = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        Random random = new Random(m);
+        double[] ratings1 = new double[m], ratings2 = new double[m], scores1 = new double[m];
+        Player[] players1 = new Player[m], players2 = new Player[m];
+        for (int i = 0; i < m; i++) {
+            ratings1[i] = 1000.0 + 2000.0 * random.nextDouble();
+            ratings2[i] = 1000.0 + 2000.0 * random.nextDouble();
+            scores1[i] = random.nextInt(3) * 0.5;
+            players1[i] = new Player("a" + i, 2 * i, ratings1[i]);
+            players2[i] = new Player("b" + i, 2 * i + 1, ratings2[i]);
+        }
+        double[] deltas1 = new double[m], deltas2 = new double[m];
+
+        long kernel = Long.MAX_VALUE, scalar = Long.MAX_VALUE, player = Long.MAX_VALUE;
+        double sink = 0;
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            EloKernel.deltas(EloRatingEngine.K_FACTOR, ratings1, ratings2, scores1, deltas1, deltas2, m);
+            kernel = Math.min(kernel, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (int i = 0; i < m; i++) {
+                sink += EloKernel.delta(EloRatingEngine.K_FACTOR, ratings1[i], ratings2[i], scores1[i])[0];
+            }
+            scalar = Math.min(scalar, System.nanoTime() - start);
+
+            for (int i = 0; i < m; i++) {
+                players1[i].setRating(ratings1[i], players1[i].getDeviation(), players1[i].getVolatility());
+                players2[i].setRating(ratings2[i], players2[i].getDeviation(), players2[i].getVolatility());
+            }
+            start = System.nanoTime();
+            for (int i = 0; i < m; i++) {
+                if (scores1[i] == 0.0) {
+                    players2[i].logVictory(players1[i]);
+                } else if (scores1[i] == 1.0) {
+                    players1[i].logVictory(players2[i]);
+                } else {
+                    players1[i].stalemate(players2[i]);
+                }
+            }
+            player = Math.min(player, System.nanoTime() - start);
+        }
+
+        // the documented tolerance is zero, so count every rating that is not bit-identical
+        int differing = 0;
+        double largest = 0;
+        for (int i = 0; i < m; i++) {
+            double diff1 = Math.abs(ratings1[i] + deltas1[i] - players1[i].getELO());
+            double diff2 = Math.abs(ratings2[i] + deltas2[i] - players2[i].getELO());
+            differing += (diff1 != 0 ? 1 : 0) + (diff2 != 0 ? 1 : 0);
+            largest = Math.max(largest, Math.max(diff1, diff2));
+        }
+
+        System.out.printf("%d matches, best of %d rounds\n", m, rounds);
+        System.out.println("path\tns/match");
+        System.out.printf("EloKernel.deltas\t%.1f\n", kernel / (double) m);
+        System.out.printf("EloKernel.delta\t%.1f\n", scalar / (double) m);
+        System.out.printf("Player\t%.1f\n", player / (double) m);
+        System.out.printf("ratings differing from Player: %d of %d, largest difference %s (checksum %.3f)\n",
+                differing, 2 * m, largest, sink % 1000.0);
+    }
+}
@@ -0,0 +1,45 @@
+package main;
+
+public class EloRatingEngine implements RatingEngine {
+    /**
+     * The K-factor of the classic Elo rating Player uses unless another engine is set
+     */
+    public static final double K_FACTOR = 32.0;
+
+    private final double k;
+
+    /**
+     * Constructor, initialize a logistic Elo engine with a fixed K-factor
+     * @param k the K-factor, the largest possible rating change in one match
+     * Runtime: O(1)
+     */
+    public EloRatingEngine(double k) {
+        this.k = k;
+    }
+
+    /**
+     * Get the K-factor for a player, subclasses override this for a variable K-factor,
+     * e.g. a larger one for new or low-rated players
+     * @param me the player whose rating changes
+     * @return the K-factor
+     * Runtime: O(1)
+     */
+    protected double kFactor(Player me) {
+        return k;
+    }
+
+    /**
+     * Compute the Elo rating change, K times the difference between the actual and the
+     * expected score. The expected score comes from Player.expectedScore, so it uses the
+     * player's cached strength or the expected-score table when one is set
+     * @param me       the player whose rating changes
+     * @param opponent the other player
+     * @param score    the player's score, 1 for a win, 0.5 for a draw, 0 for a loss
+     * @return change to add to the player's rating
+     * Runtime: O(1)
+     */
+    @Override
+    public double ratingChange(Player me, Player opponent, double score) {
+        return kFactor(me) * (score - me.expectedScore(opponent));
+    }
+}
@@ -0,0 +1,80 @@
+package main;
+
+import java.util.Random;
+
+public class ExpectedScoreBenchmark {
+    // arguments: [players] [matches] [rounds] [resolutions...], resolutions in table entries per rating point
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int m = args.length > 1 ? Integer.parseInt(args[1]) : 20000000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        double[] resolutions = {1.0, 0.25, 0.0625};
+        if (args.length > 3) {
+            resolutions = new double[args.length - 3];
+            for (int i = 3; i < args.length; i++) {
+                resolutions[i - 3] = Double.parseDouble(args[i]);
+            }
+        }
+        double maxDiff = 800.0;
+        Random random = new Random(n);
+        double[] startRatings = new double[n];
+        for (int i = 0; i < n; i++) {
+            startRatings[i] = 1000.0 + 1000.0 * random.nextDouble();
+        }
+        int[] firstIds = new int[m], secondIds = new int[m], outcomes = new int[m];
+        double[] diffs = new double[m];
+        for (int i = 0; i < m; i++) {
+            firstIds[i] = random.nextInt(n);
+            do {
+                secondIds[i] = random.nextInt(n);
+            } while (secondIds[i] == firstIds[i]);
+            outcomes[i] = random.nextInt(3);
+            diffs[i] = startRatings[firstIds[i]] - startRatings[secondIds[i]];
+        }
+
+        System.out.printf("%d players, %d matches, best of %d rounds, table range +-%.0f\n", n, m, rounds, maxDiff);
+        System.out.println("expected score\tmax error\tlookup ns\tmatch ns\tlargest rating drift");
+        double[] exactRatings = null;
+        for (int config = -1; config < resolutions.length; config++) {
+            ExpectedScoreTable table = config < 0 ? null : new ExpectedScoreTable(resolutions[config], maxDiff);
+            long lookup = Long.MAX_VALUE, match = Long.MAX_VALUE;
+            double sink = 0;
+            Player[] players = null;
+            for (int round = 0; round < rounds; round++) {
+                long start = System.nanoTime();
+                for (int i = 0; i < m; i++) {
+                    sink += table == null ? ExpectedScoreTable.exactExpectedScore(diffs[i]) : table.expectedScore(diffs[i]);
+                }
+                lookup = Math.min(lookup, System.nanoTime() - start);
+
+                players = new Player[n];
+                for (int i = 0; i < n; i++) {
+                    players[i] = new Player("p" + i, i, startRatings[i]);
+                }
+                Player.useExpectedScoreTable(table);
+                start = System.nanoTime();
+                for (int i = 0; i < m; i++) {
+                    Player p1 = players[firstIds[i]], p2 = players[secondIds[i]];
+                    Player.applyOutcome(p1, p2, outcomes[i]);
+                }
+                match = Math.min(match, System.nanoTime() - start);
+                Player.useExpectedScoreTable(null);
+            }
+
+            // how far the ratings end up from the ones the exact formula gives after every match
+            double drift = 0;
+            if (exactRatings == null) {
+                exactRatings = new double[n];
+                for (int i = 0; i < n; i++) {
+                    exactRatings[i] = players[i].getELO();
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                drift = Math.max(drift, Math.abs(players[i].getELO() - exactRatings[i]));
+            }
+            System.out.printf("%s\t%.1e\t%.1f\t%.1f\t%.2e (checksum %.3f)\n",
+                    table == null ? "exact" : "table at " + resolutions[config] + "/pt",
+                    table == null ? 0.0 : table.maxError(), lookup / (double) m, match / (double) m, drift, sink % 1000.0);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package main;
+
+public class ExpectedScoreTable {
+    private final double resolution;
+    private final double maxDiff;
+    private final int half;
+    private final double[] table;
+
+    /**
+     * Constructor, tabulate the expected score for rating differences in [-maxDiff, maxDiff]
+     * @param resolution number of table entries per rating point, e.g. 0.25 for one every 4 points
+     * @param maxDiff    largest rating difference in the table, beyond it the exact formula is used
+     * Runtime: O(resolution * maxDiff)
+     */
+    public ExpectedScoreTable(double resolution, double maxDiff) {
+        if (!(resolution > 0) || !(maxDiff > 0)) {
+            throw new IllegalArgumentException("resolution and maxDiff must be positive");
+        }
+        this.resolution = resolution;
+        this.maxDiff = maxDiff;
+        this.half = (int) Math.ceil(maxDiff * resolution);
+        this.table = new double[2 * half + 2];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = exactExpectedScore((i - half) / resolution);
+        }
+    }
+
+    /**
+     * Get the exact expected score of a player against an opponent, mathematically the
+     * value Player computes from the two strengths 10^(ELO/400)
+     * @param ratingDiff the player's ELO minus the opponent's ELO
+     * @return expected score, between 0 and 1
+     * Runtime: O(1)
+     */
+    public static double exactExpectedScore(double ratingDiff) {
+        return 1.0 / (1.0 + Math.pow(10.0, -ratingDiff / 400.0));
+    }
+
+    /**
+     * Get the expected score of a player against an opponent by linear interpolation
+     * between the two nearest table entries
+     * @param ratingDiff the player's ELO minus the opponent's ELO
+     * @return expected score, between 0 and 1
+     * Runtime: O(1)
+     */
+    public double expectedScore(double ratingDiff) {
+        if (!(Math.abs(ratingDiff) <= maxDiff)) {
+            return exactExpectedScore(ratingDiff);
+        }
+        double x = ratingDiff * resolution + half;
+        int i = (int) x;
+        double frac = x - i;
+        return table[i] + (table[i + 1] - table[i]) * frac;
+    }
+
+    /**
+     * Accuracy report, measure the largest difference from the exact formula by probing
+     * each table interval at several points
+     * @return largest absolute error of expectedScore over [-maxDiff, maxDiff]
+     * Runtime: O(resolution * maxDiff)
+     */
+    public double maxError() {
+        double worst = 0;
+        int probes = 8 * (table.length - 1);
+        for (int j = 0; j <= probes; j++) {
+            double diff = -maxDiff + 2 * maxDiff * j / probes;
+            worst = Math.max(worst, Math.abs(expectedScore(diff) - exactExpectedScore(diff)));
+        }
+        return worst;
+    }
+}
@@ -0,0 +1,233 @@
+package main;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class Glicko2RatingPeriod {
+    // converts between the Glicko scale, shared with ELO, and the Glicko-2 scale
+    private static final double SCALE = 173.7178;
+    private static final double CONVERGENCE = 0.000001;
+    // number of players one task rates before it stops splitting
+    private static final int TASK_SIZE = 1024;
+
+    private final double tau;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructor, initialize a Glicko-2 rating period processor
+     * @param tau  the system constant limiting how fast volatility changes, typically 0.3 to 1.2
+     * @param pool the pool players are rated on
+     * Runtime: O(1)
+     */
+    public Glicko2RatingPeriod(double tau, ForkJoinPool pool) {
+        this.tau = tau;
+        this.pool = pool;
+    }
+
+    /**
+     * Rate every player for one rating period and rebuild the ELO tree. Each player's new
+     * rating, deviation and volatility depend only on the ratings from before the period,
+     * so players are rated in parallel and written back once all are done. A player who
+     * did not play only has their deviation grow. Matches with an unknown id, a player
+     * against themselves or an invalid outcome are skipped
+     * @param matches the matches played in the period
+     * @param idIndex every player, keyed by id
+     * @return root of the rebuilt ELO tree, or null if there are no players
+     * Runtime: O((n + m) log n) work for n players and m matches
+     */
+    public AVLPlayerNode apply(MatchBatch matches, PlayerIdIndex idIndex) {
+        Player[] players = idIndex.players();
+        Arrays.sort(players, Comparator.comparingInt(Player::getID));
+        int n = players.length;
+        int[] ids = new int[n];
+        double[] mu = new double[n], phi = new double[n], sigma = new double[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = players[i].getID();
+            mu[i] = (players[i].getELO() - 1500.0) / SCALE;
+            phi[i] = players[i].getDeviation() / SCALE;
+            sigma[i] = players[i].getVolatility();
+        }
+
+        // gather every player's games into one flat array, offsets[i] to offsets[i + 1]
+        int m = matches.size();
+        int[] first = new int[m], second = new int[m];
+        int[] offsets = new int[n + 1];
+        for (int g = 0; g < m; g++) {
+            first[g] = Arrays.binarySearch(ids, matches.getFirstId(g));
+            second[g] = Arrays.binarySearch(ids, matches.getSecondId(g));
+            if (first[g] < 0 || second[g] < 0 || first[g] == second[g] || matches.getOutcome(g) < 0 || matches.getOutcome(g) > 2) {
+                first[g] = -1;
+                continue;
+            }
+            offsets[first[g] + 1]++;
+            offsets[second[g] + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] fill = Arrays.copyOf(offsets, n);
+        int[] opponents = new int[offsets[n]];
+        double[] scores = new double[offsets[n]];
+        for (int g = 0; g < m; g++) {
+            if (first[g] < 0) {
+                continue;
+            }
+            int outcome = matches.getOutcome(g);
+            double score = outcome == 1 ? 1.0 : outcome == 2 ? 0.0 : 0.5;
+            opponents[fill[first[g]]] = second[g];
+            scores[fill[first[g]]++] = score;
+            opponents[fill[second[g]]] = first[g];
+            scores[fill[second[g]]++] = 1.0 - score;
+        }
+
+        double[] newMu = new double[n], newPhi = new double[n], newSigma = new double[n];
+        pool.invoke(new RateTask(tau, 0, n, mu, phi, sigma, offsets, opponents, scores, newMu, newPhi, newSigma));
+        for (int i = 0; i < n; i++) {
+            players[i].setRating(newMu[i] * SCALE + 1500.0, newPhi[i] * SCALE, newSigma[i]);
+        }
+        return AVLPlayerNode.buildBalanced(players, Player::getELO);
+    }
+
+    /**
+     * Glicko-2 g function, how much an opponent's deviation dampens a result
+     * @param phi the opponent's deviation on the Glicko-2 scale
+     * @return weight of a game against that opponent
+     * Runtime: O(1)
+     */
+    private static double g(double phi) {
+        return 1.0 / Math.sqrt(1.0 + 3.0 * phi * phi / (Math.PI * Math.PI));
+    }
+
+    /**
+     * Fork/join task rating the players in [lo, hi)
+     */
+    private static class RateTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final double tau;
+        private final int lo;
+        private final int hi;
+        private final double[] mu;
+        private final double[] phi;
+        private final double[] sigma;
+        private final int[] offsets;
+        private final int[] opponents;
+        private final double[] scores;
+        private final double[] newMu;
+        private final double[] newPhi;
+        private final double[] newSigma;
+
+        /**
+         * Constructor, initialize a task over a range of players, sharing the arrays of all tasks
+         * @param tau the system constant limiting how fast volatility changes
+         * @param lo  first player (inclusive)
+         * @param hi  last player (exclusive)
+         * Runtime: O(1)
+         */
+        RateTask(double tau, int lo, int hi, double[] mu, double[] phi, double[] sigma, int[] offsets, int[] opponents,
+                 double[] scores, double[] newMu, double[] newPhi, double[] newSigma) {
+            this.tau = tau;
+            this.lo = lo;
+            this.hi = hi;
+            this.mu = mu;
+            this.phi = phi;
+            this.sigma = sigma;
+            this.offsets = offsets;
+            this.opponents = opponents;
+            this.scores = scores;
+            this.newMu = newMu;
+            this.newPhi = newPhi;
+            this.newSigma = newSigma;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= TASK_SIZE) {
+                for (int i = lo; i < hi; i++) {
+                    rate(i);
+                }
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new RateTask(tau, lo, mid, mu, phi, sigma, offsets, opponents, scores, newMu, newPhi, newSigma),
+                    new RateTask(tau, mid, hi, mu, phi, sigma, offsets, opponents, scores, newMu, newPhi, newSigma));
+        }
+
+        /**
+         * Rate one player, following the steps of Glickman's Glicko-2 description
+         * @param i index of the player
+         * Runtime: O(number of games the player played)
+         */
+        private void rate(int i) {
+            double phi2 = phi[i] * phi[i];
+            if (offsets[i] == offsets[i + 1]) {
+                newMu[i] = mu[i];
+                newPhi[i] = Math.sqrt(phi2 + sigma[i] * sigma[i]);
+                newSigma[i] = sigma[i];
+                return;
+            }
+            double vInverse = 0, improvement = 0;
+            for (int j = offsets[i]; j < offsets[i + 1]; j++) {
+                int o = opponents[j];
+                double g = g(phi[o]);
+                double e = 1.0 / (1.0 + Math.exp(-g * (mu[i] - mu[o])));
+                vInverse += g * g * e * (1.0 - e);
+                improvement += g * (scores[j] - e);
+            }
+            double v = 1.0 / vInverse;
+            double delta2 = v * improvement * v * improvement;
+
+            // new volatility, by the Illinois algorithm on f(x) = 0
+            double a = Math.log(sigma[i] * sigma[i]);
+            double tau2 = tau * tau;
+            double lower = a, upper;
+            if (delta2 > phi2 + v) {
+                upper = Math.log(delta2 - phi2 - v);
+            } else {
+                int k = 1;
+                while (f(a - k * tau, a, delta2, phi2, v, tau2) < 0) {
+                    k++;
+                }
+                upper = a - k * tau;
+            }
+            double fLower = f(lower, a, delta2, phi2, v, tau2), fUpper = f(upper, a, delta2, phi2, v, tau2);
+            while (Math.abs(upper - lower) > CONVERGENCE) {
+                double c = lower + (lower - upper) * fLower / (fUpper - fLower);
+                double fC = f(c, a, delta2, phi2, v, tau2);
+                if (fC * fUpper <= 0) {
+                    lower = upper;
+                    fLower = fUpper;
+                } else {
+                    fLower /= 2;
+                }
+                upper = c;
+                fUpper = fC;
+            }
+            double sigmaNew = Math.exp(lower / 2);
+            double phiStar2 = phi2 + sigmaNew * sigmaNew;
+            double phiNew = 1.0 / Math.sqrt(1.0 / phiStar2 + 1.0 / v);
+            newMu[i] = mu[i] + phiNew * phiNew * improvement;
+            newPhi[i] = phiNew;
+            newSigma[i] = sigmaNew;
+        }
+
+        /**
+         * The function whose root is the log of the squared new volatility
+         * @param x      the point to evaluate at
+         * @param a      log of the squared old volatility
+         * @param delta2 squared estimated improvement
+         * @param phi2   squared old deviation
+         * @param v      estimated variance from the games
+         * @param tau2   squared system constant
+         * @return value of the function at x
+         * Runtime: O(1)
+         */
+        private double f(double x, double a, double delta2, double phi2, double v, double tau2) {
+            double ex = Math.exp(x);
+            double d = phi2 + v + ex;
+            return ex * (delta2 - phi2 - v - ex) / (2 * d * d) - (x - a) / tau2;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package main;
+
+import java.util.Random;
+
+public class InsertDeleteBenchmark {
+    // arguments: [players] [rounds]
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        Random random = new Random(n);
+        Player[] players = new Player[n];
+        for (int i = 0; i < n; i++) {
+            players[i] = new Player("p" + i, i, 1000.0 + 2000.0 * random.nextDouble());
+        }
+        // delete in a different random order than the players were inserted
+        Player[] deleteOrder = players.clone();
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            Player tmp = deleteOrder[i];
+            deleteOrder[i] = deleteOrder[j];
+            deleteOrder[j] = tmp;
+        }
+
+        long[] comparisons = countSinglePass(players, deleteOrder);
+        long twoPassInsert = Long.MAX_VALUE, twoPassDelete = Long.MAX_VALUE;
+        long singlePassInsert = Long.MAX_VALUE, singlePassDelete = Long.MAX_VALUE;
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            TwoPassNode oldTree = new TwoPassNode(players[0], players[0].getELO());
+            for (int i = 1; i < n; i++) {
+                oldTree = oldTree.insert(players[i], players[i].getELO());
+            }
+            long mid = System.nanoTime();
+            for (Player p : deleteOrder) {
+                oldTree = oldTree == null ? null : oldTree.delete(p.getELO());
+            }
+            long end = System.nanoTime();
+            twoPassInsert = Math.min(twoPassInsert, mid - start);
+            twoPassDelete = Math.min(twoPassDelete, end - mid);
+
+            start = System.nanoTime();
+            AVLPlayerNode newTree = new AVLPlayerNode(players[0], players[0].getELO());
+            for (int i = 1; i < n; i++) {
+                newTree = newTree.insert(players[i], players[i].getELO());
+            }
+            mid = System.nanoTime();
+            for (Player p : deleteOrder) {
+                newTree = newTree == null ? null : newTree.delete(p.getELO());
+            }
+            end = System.nanoTime();
+            singlePassInsert = Math.min(singlePassInsert, mid - start);
+            singlePassDelete = Math.min(singlePassDelete, end - mid);
+        }
+        long[] twoPassComparisons = {TwoPassNode.insertComparisons, TwoPassNode.deleteComparisons};
+
+        System.out.printf("%d players, best of %d rounds\n", n, rounds);
+        System.out.println("operation\tversion\tcomparisons/op\tns/op");
+        System.out.printf("insert\ttwo-pass\t%.1f\t%.0f\n", twoPassComparisons[0] / (double) rounds / n, twoPassInsert / (double) n);
+        System.out.printf("insert\tsingle-pass\t%.1f\t%.0f\n", comparisons[0] / (double) n, singlePassInsert / (double) n);
+        System.out.printf("delete\ttwo-pass\t%.1f\t%.0f\n", twoPassComparisons[1] / (double) rounds / n, twoPassDelete / (double) n);
+        System.out.printf("delete\tsingle-pass\t%.1f\t%.0f\n", comparisons[1] / (double) n, singlePassDelete / (double) n);
+    }
+
+    /**
+     * Count the nodes AVLPlayerNode compares a value against, by repeating the one descent
+     * insert and delete make before each of them. Finding the successor of a node with two
+     * children follows child links without comparing values, so it is not counted
+     * @param players     the players, inserted in this order
+     * @param deleteOrder the same players, deleted in this order
+     * @return comparisons made by the inserts and by the deletes
+     * Runtime: O(n log n)
+     */
+    private static long[] countSinglePass(Player[] players, Player[] deleteOrder) {
+        long[] comparisons = new long[2];
+        AVLPlayerNode tree = new AVLPlayerNode(players[0], players[0].getELO());
+        for (int i = 1; i < players.length; i++) {
+            comparisons[0] += descend(tree, players[i].getELO());
+            tree = tree.insert(players[i], players[i].getELO());
+        }
+        for (Player p : deleteOrder) {
+            comparisons[1] += descend(tree, p.getELO());
+            tree = tree.delete(p.getELO());
+        }
+        return comparisons;
+    }
+
+    /**
+     * Walk down from the root towards a value
+     * @param tree  root of the tree
+     * @param value the value
+     * @return number of nodes compared against, including the one holding the value
+     * Runtime: O(log n)
+     */
+    private static int descend(AVLPlayerNode tree, double value) {
+        int count = 0;
+        for (AVLPlayerNode cur = tree; cur != null; cur = value < cur.getValue() ? cur.getLeftChild() : cur.getRightChild()) {
+            count++;
+            if (cur.getValue() == value) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * The recursive insert and delete AVLPlayerNode had before they became single-pass:
+     * each one first checks whether the value is in the tree, then descends again to
+     * change it, and delete descends a third time to remove a successor. Kept here only
+     * to be measured against
+     */
+    private static class TwoPassNode {
+        private static long comparisons;
+        private static long insertComparisons;
+        private static long deleteComparisons;
+
+        private Player data;
+        private double value;
+        private TwoPassNode parent;
+        private TwoPassNode leftChild;
+        private TwoPassNode rightChild;
+        private int rightWeight;
+        private int balanceFactor;
+        private int height;
+
+        private TwoPassNode(Player data, double value) {
+            this.data = data;
+            this.value = value;
+            this.height = 1;
+        }
+
+        private TwoPassNode insert(Player newGuy, double value) {
+            comparisons = 0;
+            TwoPassNode root = !hasNode(value) ? insertHelper(newGuy, value) : this;
+            insertComparisons += comparisons;
+            return root;
+        }
+
+        private TwoPassNode delete(double value) {
+            comparisons = 0;
+            TwoPassNode root = hasNode(value) ? this.deleteHelper(value) : this;
+            deleteComparisons += comparisons;
+            return root;
+        }
+
+        private boolean hasNode(double value) {
+            TwoPassNode cur = this;
+            while (cur != null) {
+                comparisons++;
+                if (cur.value == value) {
+                    return true;
+                }
+                cur = value < cur.value ? cur.leftChild : cur.rightChild;
+            }
+            return false;
+        }
+
+        private TwoPassNode insertHelper(Player newGuy, double value) {
+            comparisons++;
+            if (value < this.value) {
+                if (this.leftChild == null) {
+                    this.leftChild = new TwoPassNode(newGuy, value);
+                } else {
+                    this.leftChild = this.leftChild.insertHelper(newGuy, value);
+                }
+            } else {
+                if (this.rightChild == null) {
+                    this.rightChild = new TwoPassNode(newGuy, value);
+                } else {
+                    this.rightChild = this.rightChild.insertHelper(newGuy, value);
+                }
+                this.rightWeight++;
+            }
+            this.reconnectChildren();
+            this.updateHeightAndBF();
+            return this.balance();
+        }
+
+        private TwoPassNode deleteHelper(double value) {
+            comparisons++;
+            TwoPassNode root = this;
+            if (this.value == value) {
+                if (this.leftChild == null && this.rightChild == null) {
+                    return null;
+                } else if (this.leftChild != null && this.rightChild != null) {
+                    TwoPassNode successor = this.rightChild;
+                    while (successor.leftChild != null) {
+                        successor = successor.leftChild;
+                    }
+                    this.data = successor.data;
+                    this.value = successor.value;
+                    this.rightChild = this.rightChild.deleteHelper(successor.value);
+                    this.rightWeight -= 1;
+                } else {
+                    root = this.leftChild != null ? this.leftChild : this.rightChild;
+                }
+                root.parent = null;
+            } else if (this.value < value && this.rightChild != null) {
+                this.rightChild = this.rightChild.deleteHelper(value);
+                this.rightWeight -= 1;
+            } else if (this.value > value && this.leftChild != null) {
+                this.leftChild = this.leftChild.deleteHelper(value);
+            }
+            root.reconnectChildren();
+            this.updateHeightAndBF();
+            return root.balance();
+        }
+
+        private TwoPassNode balance() {
+            TwoPassNode root = this;
+            if (this.balanceFactor < -1) {
+                if (this.rightChild.balanceFactor <= 0) {
+                    root = this.rightChild;
+                    this.rotateLeft();
+                } else {
+                    root = this.rightChild.leftChild;
+                    this.rightChild.rotateRight();
+                    this.rightChild = root;
+                    this.rotateLeft();
+                }
+            } else if (this.balanceFactor > 1) {
+                if (this.leftChild.balanceFactor >= 0) {
+                    root = this.leftChild;
+                    this.rotateRight();
+                } else {
+                    root = this.leftChild.rightChild;
+                    this.leftChild.rotateLeft();
+                    this.leftChild = root;
+                    this.rotateRight();
+                }
+            }
+            root.updateHeightAndBF();
+            return root;
+        }
+
+        private void reconnectChildren() {
+            if (this.leftChild != null) {
+                this.leftChild.parent = this;
+            }
+            if (this.rightChild != null) {
+                this.rightChild.parent = this;
+            }
+        }
+
+        private void updateHeightAndBF() {
+            int lh = this.leftChild != null ? this.leftChild.height : 0;
+            int rh = this.rightChild != null ? this.rightChild.height : 0;
+            this.height = Math.max(lh, rh) + 1;
+            this.balanceFactor = lh - rh;
+        }
+
+        private void rotateRight() {
+            TwoPassNode l = this.leftChild, lr = this.leftChild.rightChild;
+            l.rightChild = this;
+            this.leftChild = lr;
+            l.parent = this.parent;
+            this.parent = l;
+            this.reconnectChildren();
+            this.updateHeightAndBF();
+            l.updateHeightAndBF();
+            l.rightWeight += this.rightWeight + 1;
+        }
+
+        private void rotateLeft() {
+            TwoPassNode r = this.rightChild, rl = this.rightChild.leftChild;
+            r.leftChild = this;
+            this.rightChild = rl;
+            r.parent = this.parent;
+            this.parent = r;
+            this.reconnectChildren();
+            this.updateHeightAndBF();
+            r.updateHeightAndBF();
+            this.rightWeight -= r.rightWeight + 1;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package main;
+
+import java.util.Arrays;
+
+public class MatchBatch {
+    private int[] firstIds;
+    private int[] secondIds;
+    private int[] outcomes;
+    private int size;
+
+    /**
+     * Constructor, initialize an empty batch of match results
+     * Runtime: O(1)
+     */
+    public MatchBatch() {
+        this(16);
+    }
+
+    /**
+     * Constructor, initialize an empty batch sized for an expected number of matches
+     * @param capacity the number of matches expected to be added
+     * Runtime: O(capacity)
+     */
+    public MatchBatch(int capacity) {
+        capacity = Math.max(capacity, 1);
+        this.firstIds = new int[capacity];
+        this.secondIds = new int[capacity];
+        this.outcomes = new int[capacity];
+        this.size = 0;
+    }
+
+    /**
+     * Getter method for size
+     * @return number of matches in the batch
+     * Runtime: O(1)
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Getter method for the first player of a match
+     * @param i index of the match
+     * @return id of the first player
+     * Runtime: O(1)
+     */
+    public int getFirstId(int i) {
+        return firstIds[i];
+    }
+
+    /**
+     * Getter method for the second player of a match
+     * @param i index of the match
+     * @return id of the second player
+     * Runtime: O(1)
+     */
+    public int getSecondId(int i) {
+        return secondIds[i];
+    }
+
+    /**
+     * Getter method for the outcome of a match
+     * @param i index of the match
+     * @return 1 if the first player won, 2 if the second player won, 0 for a draw
+     * Runtime: O(1)
+     */
+    public int getOutcome(int i) {
+        return outcomes[i];
+    }
+
+    /**
+     * Remove every match from the batch, keeping its capacity
+     * Runtime: O(1)
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Add the outcome of a match to the batch
+     * @param id1     id of the first player
+     * @param id2     id of the second player
+     * @param outcome 1 if the first player won, 2 if the second player won, 0 for a draw
+     * Runtime: O(1) amortized
+     */
+    public void add(int id1, int id2, int outcome) {
+        if (size == outcomes.length) {
+            firstIds = Arrays.copyOf(firstIds, size * 2);
+            secondIds = Arrays.copyOf(secondIds, size * 2);
+            outcomes = Arrays.copyOf(outcomes, size * 2);
+        }
+        firstIds[size] = id1;
+        secondIds[size] = id2;
+        outcomes[size] = outcome;
+        size++;
+    }
+
+    /**
+     * Apply every match in the batch, in order, and move the players on the ELO tree.
+     * Ratings are updated match by match as the 'M' command does, but each player who
+     * played is moved on the tree only once, from their ELO before the batch to their
+     * ELO after it. Matches with an unknown id, a player against themselves or an
+     * invalid outcome are skipped
+     * @param eloTree root of the players keyed by ELO
+     * @param idIndex the players keyed by id
+     * @return root of the ELO tree
+     * Runtime: O(m + min(k log n, n + k log k)) for m matches among k players
+     */
+    public AVLPlayerNode apply(AVLPlayerNode eloTree, PlayerIdIndex idIndex) {
+        PlayerIdIndex touched = new PlayerIdIndex(Math.min(2 * size, idIndex.size()));
+        Player[] moved = new Player[Math.min(2 * size, idIndex.size())];
+        double[] oldElos = new double[moved.length];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            Player p1 = idIndex.get(firstIds[i]), p2 = idIndex.get(secondIds[i]);
+            if (p1 == null || p2 == null || p1 == p2 || outcomes[i] < 0 || outcomes[i] > 2) {
+                continue;
+            }
+            if (touched.add(p1)) {
+                moved[count] = p1;
+                oldElos[count++] = p1.getELO();
+            }
+            if (touched.add(p2)) {
+                moved[count] = p2;
+                oldElos[count++] = p2.getELO();
+            }
+            Player.applyOutcome(p1, p2, outcomes[i]);
+        }
+        double[] newElos = new double[count];
+        for (int i = 0; i < count; i++) {
+            newElos[i] = moved[i].getELO();
+        }
+        return eloTree.updateValues(moved, oldElos, newElos, count);
+    }
+}
@@ -0,0 +1,95 @@
+package main;
+
+import java.util.Random;
+
+public class MatchBatchBenchmark {
+    // arguments: [players] [rounds per batch size] [batch sizes...]
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int[] batchSizes = {1000, 10000, 100000, 1000000};
+        if (args.length > 2) {
+            batchSizes = new int[args.length - 2];
+            for (int i = 2; i < args.length; i++) {
+                batchSizes[i - 2] = Integer.parseInt(args[i]);
+            }
+        }
+
+        System.out.printf("%d players, best of %d rounds\n", n, rounds);
+        System.out.println("matches\tper-match ms\tbatch ms\tspeedup");
+        for (int m : batchSizes) {
+            MatchBatch batch = randomMatches(n, m, new Random(m));
+            long perMatch = Long.MAX_VALUE, batched = Long.MAX_VALUE;
+            for (int round = 0; round < rounds; round++) {
+                Player[] players = randomPlayers(n, new Random(n));
+                AVLPlayerNode eloTree = AVLPlayerNode.buildBalanced(players, Player::getELO);
+                PlayerIdIndex idIndex = new PlayerIdIndex(players);
+                long start = System.nanoTime();
+                applyOneByOne(batch, eloTree, idIndex);
+                perMatch = Math.min(perMatch, System.nanoTime() - start);
+
+                players = randomPlayers(n, new Random(n));
+                eloTree = AVLPlayerNode.buildBalanced(players, Player::getELO);
+                idIndex = new PlayerIdIndex(players);
+                start = System.nanoTime();
+                batch.apply(eloTree, idIndex);
+                batched = Math.min(batched, System.nanoTime() - start);
+            }
+            System.out.printf("%d\t%.1f\t%.1f\t%.2f\n", m, perMatch / 1e6, batched / 1e6, (double) perMatch / batched);
+        }
+    }
+
+    /**
+     * Make players with distinct random ratings
+     * @param n      number of players, ids are 0 to n - 1
+     * @param random source of the ratings
+     * @return the players
+     * Runtime: O(n)
+     */
+    private static Player[] randomPlayers(int n, Random random) {
+        Player[] players = new Player[n];
+        for (int i = 0; i < n; i++) {
+            players[i] = new Player("p" + i, i, 1000.0 + 2000.0 * random.nextDouble());
+        }
+        return players;
+    }
+
+    /**
+     * Make matches between random pairs of distinct players
+     * @param n      number of players, ids are 0 to n - 1
+     * @param m      number of matches
+     * @param random source of the pairs and outcomes
+     * @return the matches
+     * Runtime: O(m)
+     */
+    private static MatchBatch randomMatches(int n, int m, Random random) {
+        MatchBatch batch = new MatchBatch(m);
+        while (batch.size() < m) {
+            int id1 = random.nextInt(n), id2 = random.nextInt(n);
+            if (id1 != id2) {
+                batch.add(id1, id2, random.nextInt(3));
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Apply matches the way the 'M' command does, moving both players after each match
+     * @param batch   the matches
+     * @param eloTree root of the players keyed by ELO
+     * @param idIndex the players keyed by id
+     * @return root of the ELO tree
+     * Runtime: O(m log n)
+     */
+    private static AVLPlayerNode applyOneByOne(MatchBatch batch, AVLPlayerNode eloTree, PlayerIdIndex idIndex) {
+        for (int i = 0; i < batch.size(); i++) {
+            Player p1 = idIndex.get(batch.getFirstId(i)), p2 = idIndex.get(batch.getSecondId(i));
+            double elo1 = p1.getELO(), elo2 = p2.getELO();
+            int outcome = batch.getOutcome(i);
+            Player.applyOutcome(p1, p2, outcome);
+            eloTree = eloTree.updateValue(p1, elo1, p1.getELO());
+            eloTree = eloTree.updateValue(p2, elo2, p2.getELO());
+        }
+        return eloTree;
+    }
+}
@@ -0,0 +1,408 @@
+package main;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+public class MatchLog implements Closeable {
+    /**
+     * Size of one record: crc (4 bytes), record id (8 bytes), kind (4 bytes), then 16 bytes
+     * that depend on the kind. A match holds the first id, second id (4 bytes each) and a
+     * timestamp (8 bytes), an added player holds the id, name length (4 bytes each) and ELO
+     * (8 bytes) and is followed by name records of 16 name bytes each, a removed player
+     * holds the id. The first slot of the file is a header: magic, version (4 bytes each)
+     * and the id of the first record in the file (8 bytes)
+     */
+    public static final int RECORD_SIZE = 32;
+    private static final int MAGIC = 0x41564C4C; // "AVLL"
+    private static final int VERSION = 2;
+    // kinds 0 to 2 are matches, the kind is the outcome
+    private static final int ADD = 3;
+    private static final int REMOVE = 4;
+    private static final int NAME = 5;
+    private static final int NAME_BYTES = 16;
+    // how much of the file is mapped at a time
+    private static final int REGION_SIZE = RECORD_SIZE * 32768;
+
+    /**
+     * Receives the records of a match log as they are read back
+     */
+    public interface Replay {
+        /**
+         * Receive the outcome of a match
+         * @param id1     id of the first player
+         * @param id2     id of the second player
+         * @param outcome 1 if the first player won, 2 if the second player won, 0 for a draw
+         */
+        void match(int id1, int id2, int outcome);
+
+        /**
+         * Receive a player that was added
+         * @param p the player, with the ELO it was added with
+         */
+        void addPlayer(Player p);
+
+        /**
+         * Receive the id of a player that was removed
+         * @param id the id
+         */
+        void removePlayer(int id);
+    }
+
+    private final FileChannel channel;
+    private final CRC32 crc;
+    private final int groupSize;
+    private MappedByteBuffer region;
+    private long regionStart;
+    private long firstRecordId;
+    private long lastRecordId;
+    private int pending;
+
+    /**
+     * Constructor, initialize a log over an open channel
+     * @param channel   the log file, opened for reading and writing
+     * @param groupSize number of appended records that are forced to disk together
+     * Runtime: O(1)
+     */
+    private MatchLog(FileChannel channel, int groupSize) {
+        this.channel = channel;
+        this.crc = new CRC32();
+        this.groupSize = Math.max(groupSize, 1);
+        this.pending = 0;
+    }
+
+    /**
+     * Open a match log for appending, creating it if needed. Existing records are kept up
+     * to the first one that is torn or missing, everything after it is cut off, along with
+     * an added player whose name records did not all make it. The file only holds the
+     * records since the last reset, so this is proportional to the tail a snapshot does
+     * not include
+     * @param path      the log file
+     * @param groupSize number of appended records that are forced to disk together,
+     *                  1 makes every record durable before it is appended
+     * @return the log
+     * @throws IOException if the file cannot be opened or mapped, or is not a match log
+     * Runtime: O(number of records in the file)
+     */
+    public static MatchLog open(Path path, int groupSize) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MatchLog log = new MatchLog(channel, groupSize);
+        try {
+            if (channel.size() < RECORD_SIZE) {
+                channel.truncate(0);
+                log.writeHeader(1);
+            } else {
+                ByteBuffer header = ByteBuffer.allocate(RECORD_SIZE);
+                channel.read(header, 0);
+                if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                    throw new IOException(path + " is not a match log");
+                }
+                log.firstRecordId = header.getLong(8);
+            }
+            long end = RECORD_SIZE, addStart = 0;
+            int namesLeft = 0;
+            long size = channel.size();
+            while (end + RECORD_SIZE <= size) {
+                if (log.region == null || end - log.regionStart >= REGION_SIZE) {
+                    log.map(end);
+                }
+                int at = (int) (end - log.regionStart);
+                // a record left over from before a reset has an id that does not fit its slot
+                if (!log.isValidRecord(at) || log.region.getLong(at + 4) != log.firstRecordId + end / RECORD_SIZE - 1) {
+                    break;
+                }
+                int kind = log.region.getInt(at + 12);
+                if (namesLeft > 0) {
+                    if (kind != NAME) {
+                        break;
+                    }
+                    namesLeft--;
+                } else if (kind == ADD) {
+                    addStart = end;
+                    namesLeft = nameRecords(log.region.getInt(at + 20));
+                } else if (kind < 0 || kind > REMOVE) {
+                    break;
+                }
+                end += RECORD_SIZE;
+            }
+            if (namesLeft > 0) {
+                end = addStart;
+            }
+            log.lastRecordId = log.firstRecordId + end / RECORD_SIZE - 2;
+            log.region = null;
+            // drop any torn or stale tail so a later scan cannot run into it
+            channel.truncate(end);
+            log.map(end);
+            return log;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Write the header and force it to disk
+     * @param firstRecordId id of the first record the file holds from now on
+     * @throws IOException if the file cannot be written
+     * Runtime: O(1)
+     */
+    private void writeHeader(long firstRecordId) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(RECORD_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putLong(firstRecordId).rewind();
+        channel.write(header, 0);
+        channel.force(true);
+        this.firstRecordId = firstRecordId;
+    }
+
+    /**
+     * Get where a record sits in the file, record firstRecordId is in the slot after the header
+     * @param recordId the record id
+     * @return file offset of the record
+     * Runtime: O(1)
+     */
+    private long offset(long recordId) {
+        return (recordId - firstRecordId + 1) * RECORD_SIZE;
+    }
+
+    /**
+     * Count the name records that follow an added player
+     * @param nameLength length of the name in UTF-8 bytes
+     * @return the number of name records
+     * Runtime: O(1)
+     */
+    private static int nameRecords(int nameLength) {
+        return (nameLength + NAME_BYTES - 1) / NAME_BYTES;
+    }
+
+    /**
+     * Map the region of the file starting at a record, growing the file if needed
+     * @param start file offset of the region, a multiple of RECORD_SIZE
+     * @throws IOException if the region cannot be mapped
+     * Runtime: O(1)
+     */
+    private void map(long start) throws IOException {
+        this.region = channel.map(FileChannel.MapMode.READ_WRITE, start, REGION_SIZE);
+        this.regionStart = start;
+    }
+
+    /**
+     * Check the record at a position of the mapped region
+     * @param at offset of the record in the region
+     * @return whether the record is complete and its checksum matches
+     * Runtime: O(1)
+     */
+    private boolean isValidRecord(int at) {
+        crc.reset();
+        crc.update(region.slice(at + 4, RECORD_SIZE - 4));
+        return (int) crc.getValue() == region.getInt(at);
+    }
+
+    /**
+     * Getter method for last record id
+     * @return id of the last record in the log, 0 if it is empty
+     * Runtime: O(1)
+     */
+    public long getLastRecordId() {
+        return lastRecordId;
+    }
+
+    /**
+     * Read back every record after a given one. Record ids count up with one slot each,
+     * so the first record wanted is found by its offset without scanning the log
+     * @param recordId id of the last record that is not wanted, e.g. the one a snapshot includes
+     * @param replay   receives the records, in the order they were appended
+     * @throws IOException if the file cannot be mapped, or a reset already dropped records
+     *                     after recordId
+     * Runtime: O(number of records after recordId)
+     */
+    public void replayAfter(long recordId, Replay replay) throws IOException {
+        if (recordId < firstRecordId - 1) {
+            throw new IOException("the match log starts at record " + firstRecordId + ", after record " + recordId);
+        }
+        long start = offset(recordId + 1);
+        long end = offset(lastRecordId + 1);
+        byte[] name = null;
+        int nameLength = 0, nameRead = 0, addId = 0;
+        double addElo = 0;
+        MappedByteBuffer chunk = null;
+        long chunkStart = start;
+        for (long offset = start; offset < end; offset += RECORD_SIZE) {
+            if (chunk == null || offset - chunkStart >= REGION_SIZE) {
+                chunkStart = offset;
+                chunk = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(REGION_SIZE, end - offset));
+            }
+            int at = (int) (offset - chunkStart);
+            int kind = chunk.getInt(at + 12);
+            if (kind == ADD) {
+                addId = chunk.getInt(at + 16);
+                nameLength = chunk.getInt(at + 20);
+                addElo = chunk.getDouble(at + 24);
+                name = new byte[nameLength];
+                nameRead = 0;
+            } else if (kind == NAME) {
+                // name records only ever follow their added player
+                if (name == null) {
+                    continue;
+                }
+                int n = Math.min(NAME_BYTES, nameLength - nameRead);
+                chunk.get(at + 16, name, nameRead, n);
+                nameRead += n;
+            } else if (kind == REMOVE) {
+                replay.removePlayer(chunk.getInt(at + 16));
+            } else {
+                replay.match(chunk.getInt(at + 16), chunk.getInt(at + 20), kind);
+            }
+            if (name != null && nameRead == nameLength) {
+                replay.addPlayer(new Player(new String(name, StandardCharsets.UTF_8), addId, addElo));
+                name = null;
+            }
+        }
+    }
+
+    /**
+     * Start a record in the next free slot, moving on to the next region when this one is full
+     * @param kind the kind of record
+     * @return offset of the record in the region
+     * @throws IOException if the file cannot be grown
+     * Runtime: O(1), plus a disk sync when the region is full
+     */
+    private int startRecord(int kind) throws IOException {
+        if (region.position() == REGION_SIZE) {
+            commit();
+            map(regionStart + REGION_SIZE);
+        }
+        int at = region.position();
+        region.putLong(at + 4, ++lastRecordId);
+        region.putInt(at + 12, kind);
+        return at;
+    }
+
+    /**
+     * Seal a started record with its checksum
+     * @param at offset of the record in the region
+     * Runtime: O(1)
+     */
+    private void endRecord(int at) {
+        crc.reset();
+        crc.update(region.slice(at + 4, RECORD_SIZE - 4));
+        region.putInt(at, (int) crc.getValue());
+        region.position(at + RECORD_SIZE);
+        pending++;
+    }
+
+    /**
+     * Force the pending group to disk once it is full
+     * Runtime: O(1), plus a disk sync every groupSize records
+     */
+    private void commitIfFull() {
+        if (pending >= groupSize) {
+            commit();
+        }
+    }
+
+    /**
+     * Append the outcome of a match, forcing the pending group to disk once it is full
+     * @param id1     id of the first player
+     * @param id2     id of the second player
+     * @param outcome 1 if the first player won, 2 if the second player won, 0 for a draw
+     * @return id given to the record
+     * @throws IOException if the file cannot be grown or forced
+     * @throws IllegalArgumentException if the outcome is not 0, 1 or 2
+     * Runtime: O(1), plus a disk sync every groupSize records
+     */
+    public long append(int id1, int id2, int outcome) throws IOException {
+        if (outcome < 0 || outcome > 2) {
+            throw new IllegalArgumentException("outcome " + outcome);
+        }
+        int at = startRecord(outcome);
+        region.putInt(at + 16, id1);
+        region.putInt(at + 20, id2);
+        region.putLong(at + 24, System.currentTimeMillis());
+        endRecord(at);
+        commitIfFull();
+        return lastRecordId;
+    }
+
+    /**
+     * Append a player that was added, forcing the pending group to disk once it is full
+     * @param p the player, its current ELO is logged
+     * @return id given to the last of its records
+     * @throws IOException if the file cannot be grown or forced
+     * Runtime: O(length of the name), plus a disk sync every groupSize records
+     */
+    public long appendAdd(Player p) throws IOException {
+        byte[] name = p.getName().getBytes(StandardCharsets.UTF_8);
+        int at = startRecord(ADD);
+        region.putInt(at + 16, p.getID());
+        region.putInt(at + 20, name.length);
+        region.putDouble(at + 24, p.getELO());
+        endRecord(at);
+        for (int i = 0; i < name.length; i += NAME_BYTES) {
+            at = startRecord(NAME);
+            region.put(at + 16, name, i, Math.min(NAME_BYTES, name.length - i));
+            endRecord(at);
+        }
+        commitIfFull();
+        return lastRecordId;
+    }
+
+    /**
+     * Append a player that was removed, forcing the pending group to disk once it is full
+     * @param id id of the player
+     * @return id given to the record
+     * @throws IOException if the file cannot be grown or forced
+     * Runtime: O(1), plus a disk sync every groupSize records
+     */
+    public long appendRemove(int id) throws IOException {
+        int at = startRecord(REMOVE);
+        region.putInt(at + 16, id);
+        endRecord(at);
+        commitIfFull();
+        return lastRecordId;
+    }
+
+    /**
+     * Drop every record, once a snapshot includes them all, so the log only grows with the
+     * records since the last snapshot. Record ids carry on from the last one. The header is
+     * forced before the file is cut, and a crash in between leaves old records whose ids do
+     * not fit their slots, which open cuts off
+     * @throws IOException if the file cannot be written or cut
+     * Runtime: O(1), plus a disk sync
+     */
+    public void reset() throws IOException {
+        writeHeader(lastRecordId + 1);
+        region = null;
+        pending = 0;
+        channel.truncate(RECORD_SIZE);
+        map(RECORD_SIZE);
+    }
+
+    /**
+     * Force every appended record to disk
+     * Runtime: O(pending records)
+     */
+    public void commit() {
+        if (pending > 0) {
+            region.force();
+            pending = 0;
+        }
+    }
+
+    /**
+     * Force every appended record to disk and close the log
+     * @throws IOException if the file cannot be closed
+     * Runtime: O(pending records)
+     */
+    @Override
+    public void close() throws IOException {
+        commit();
+        channel.close();
+    }
+}
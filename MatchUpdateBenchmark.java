@@ -0,0 +1,97 @@
+package main;
+
+import java.util.Random;
+
+public class MatchUpdateBenchmark {
+    // arguments: [players] [matches] [rounds]
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int m = args.length > 1 ? Integer.parseInt(args[1]) : 20000000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        Random random = new Random(n);
+        double[] startRatings = new double[n];
+        for (int i = 0; i < n; i++) {
+            startRatings[i] = 1000.0 + 2000.0 * random.nextDouble();
+        }
+        int[] firstIds = new int[m], secondIds = new int[m], outcomes = new int[m];
+        for (int i = 0; i < m; i++) {
+            firstIds[i] = random.nextInt(n);
+            do {
+                secondIds[i] = random.nextInt(n);
+            } while (secondIds[i] == firstIds[i]);
+            outcomes[i] = random.nextInt(3);
+        }
+
+        long uncached = Long.MAX_VALUE, cached = Long.MAX_VALUE, uncachedReads = Long.MAX_VALUE, cachedReads = Long.MAX_VALUE;
+        double[] ratings = null;
+        Player[] players = null;
+        double sink = 0;
+        for (int round = 0; round < rounds; round++) {
+            ratings = startRatings.clone();
+            long start = System.nanoTime();
+            applyUncached(ratings, firstIds, secondIds, outcomes);
+            uncached = Math.min(uncached, System.nanoTime() - start);
+
+            players = new Player[n];
+            for (int i = 0; i < n; i++) {
+                players[i] = new Player("p" + i, i, startRatings[i]);
+            }
+            start = System.nanoTime();
+            for (int i = 0; i < m; i++) {
+                Player p1 = players[firstIds[i]], p2 = players[secondIds[i]];
+                Player.applyOutcome(p1, p2, outcomes[i]);
+            }
+            cached = Math.min(cached, System.nanoTime() - start);
+
+            // win probabilities read back without any rating change in between
+            start = System.nanoTime();
+            for (int i = 0; i < m; i++) {
+                double mine = Math.pow(10.0, ratings[firstIds[i]] / 400.0), theirs = Math.pow(10.0, ratings[secondIds[i]] / 400.0);
+                sink += mine / (mine + theirs);
+            }
+            uncachedReads = Math.min(uncachedReads, System.nanoTime() - start);
+            start = System.nanoTime();
+            for (int i = 0; i < m; i++) {
+                sink += players[firstIds[i]].expectedScore(players[secondIds[i]]);
+            }
+            cachedReads = Math.min(cachedReads, System.nanoTime() - start);
+        }
+        double maxDifference = 0;
+        for (int i = 0; i < n; i++) {
+            maxDifference = Math.max(maxDifference, Math.abs(ratings[i] - players[i].getELO()));
+        }
+
+        System.out.printf("%d players, %d matches, best of %d rounds\n", n, m, rounds);
+        System.out.println("path\tuncached ns\tcached ns");
+        System.out.printf("match update\t%.1f\t%.1f\n", uncached / (double) m, cached / (double) m);
+        System.out.printf("expected score read\t%.1f\t%.1f\n", uncachedReads / (double) m, cachedReads / (double) m);
+        System.out.printf("largest rating difference: %s (checksum %.3f)\n", maxDifference, sink % 1000.0);
+    }
+
+    /**
+     * Apply matches the way Player did before it cached strengths, computing both
+     * players' 10^(ELO/400) with Math.pow on every match
+     * @param ratings   the ratings, indexed by player id, updated in place
+     * @param firstIds  ids of the first players
+     * @param secondIds ids of the second players
+     * @param outcomes  1 if the first player won, 2 if the second player won, 0 for a draw
+     * Runtime: O(m)
+     */
+    private static void applyUncached(double[] ratings, int[] firstIds, int[] secondIds, int[] outcomes) {
+        for (int i = 0; i < outcomes.length; i++) {
+            int winner = outcomes[i] == 2 ? secondIds[i] : firstIds[i];
+            int loser = outcomes[i] == 2 ? firstIds[i] : secondIds[i];
+            double loserStrength = Math.pow(10.0, ratings[loser] / 400.0);
+            double winnerStrength = Math.pow(10.0, ratings[winner] / 400.0);
+            double total = loserStrength + winnerStrength;
+            double loserExp = loserStrength / total, winnerExp = winnerStrength / total;
+            if (outcomes[i] == 0) {
+                ratings[loser] += 32.0 * (0.5 - loserExp);
+                ratings[winner] += 32.0 * (0.5 - winnerExp);
+            } else {
+                ratings[loser] -= 32.0 * loserExp;
+                ratings[winner] += 32.0 * (1.0 - winnerExp);
+            }
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package main;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.function.ToDoubleFunction;
+
+public final class PersistentPlayerNode {
+    private final Player data;
+    private final double value;
+    private final PersistentPlayerNode leftChild;
+    private final PersistentPlayerNode rightChild;
+    private final int size;
+    private final int height;
+
+    /**
+     * Constructor, initialize an immutable AVL player node over two existing subtrees
+     * @param data       the player
+     * @param value      the value that AVL tree's BST property based on
+     * @param leftChild  the left subtree, shared and never modified
+     * @param rightChild the right subtree, shared and never modified
+     * Runtime: O(1)
+     */
+    private PersistentPlayerNode(Player data, double value, PersistentPlayerNode leftChild, PersistentPlayerNode rightChild) {
+        this.data = data;
+        this.value = value;
+        this.leftChild = leftChild;
+        this.rightChild = rightChild;
+        this.size = size(leftChild) + size(rightChild) + 1;
+        this.height = Math.max(height(leftChild), height(rightChild)) + 1;
+    }
+
+    /**
+     * Constructor, initialize a single immutable AVL player node
+     * @param data  the player
+     * @param value the value that AVL tree's BST property based on
+     * Runtime: O(1)
+     */
+    public PersistentPlayerNode(Player data, double value) {
+        this(data, value, null, null);
+    }
+
+    /**
+     * Getter method for left child
+     * @return node's left child
+     * Runtime: O(1)
+     */
+    public PersistentPlayerNode getLeftChild() {
+        return leftChild;
+    }
+
+    /**
+     * Getter method for right child
+     * @return node's right child
+     * Runtime: O(1)
+     */
+    public PersistentPlayerNode getRightChild() {
+        return rightChild;
+    }
+
+    /**
+     * Getter method for balance factor
+     * @return balance factor
+     * Runtime: O(1)
+     */
+    public int getBalanceFactor() {
+        return height(leftChild) - height(rightChild);
+    }
+
+    /**
+     * Getter method for height
+     * @return height
+     * Runtime: O(1)
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Getter method for Right Weight
+     * @return right weight
+     * Runtime: O(1)
+     */
+    public int getRightWeight() {
+        return size(rightChild);
+    }
+
+    /**
+     * Getter method for size
+     * @return number of nodes in the tree
+     * Runtime: O(1)
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the size of a possibly empty subtree
+     * @param node root of the subtree
+     * @return number of nodes in the subtree
+     * Runtime: O(1)
+     */
+    private static int size(PersistentPlayerNode node) {
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * Get the height of a possibly empty subtree
+     * @param node root of the subtree
+     * @return height of the subtree
+     * Runtime: O(1)
+     */
+    private static int height(PersistentPlayerNode node) {
+        return node == null ? 0 : node.height;
+    }
+
+    /**
+     * Build a perfectly balanced tree out of an array of players, players whose value
+     * duplicates an earlier one are skipped like insert does
+     * @param players the players, the array itself is left untouched
+     * @param key     extracts the value that AVL tree's BST property based on
+     * @return root of the tree, or null if there are no players
+     * Runtime: O(n) if players are already sorted by key, O(n log n) otherwise
+     */
+    public static PersistentPlayerNode buildBalanced(Player[] players, ToDoubleFunction<Player> key) {
+        Player[] sorted = players.clone();
+        Arrays.sort(sorted, Comparator.comparingDouble(key));
+        Player[] data = new Player[sorted.length];
+        double[] values = new double[sorted.length];
+        int n = 0;
+        for (Player p : sorted) {
+            double value = key.applyAsDouble(p);
+            if (n == 0 || values[n - 1] != value) {
+                data[n] = p;
+                values[n] = value;
+                n++;
+            }
+        }
+        return buildBalanced(data, values, 0, n);
+    }
+
+    /**
+     * Helper method, build a balanced subtree out of sorted, distinct values
+     * @param data   the players
+     * @param values the values of the players, in ascending order
+     * @param lo     first index of the subtree (inclusive)
+     * @param hi     last index of the subtree (exclusive)
+     * @return root of the subtree
+     * Runtime: O(hi - lo)
+     */
+    private static PersistentPlayerNode buildBalanced(Player[] data, double[] values, int lo, int hi) {
+        if (lo >= hi) {
+            return null;
+        }
+        int mid = (lo + hi) >>> 1;
+        return new PersistentPlayerNode(data[mid], values[mid],
+                buildBalanced(data, values, lo, mid), buildBalanced(data, values, mid + 1, hi));
+    }
+
+    /**
+     * Create a node over two subtrees whose heights differ by at most two, rotating
+     * copies of the nodes involved when the result would be out of balance
+     * @param data  the player
+     * @param value the value of the node
+     * @param left  the left subtree
+     * @param right the right subtree
+     * @return root of the balanced subtree
+     * Runtime: O(1)
+     */
+    private static PersistentPlayerNode balance(Player data, double value, PersistentPlayerNode left, PersistentPlayerNode right) {
+        int bf = height(left) - height(right);
+        if (bf > 1) { // tree left heavy
+            if (height(left.leftChild) >= height(left.rightChild)) {
+                // R-rotation
+                return new PersistentPlayerNode(left.data, left.value, left.leftChild,
+                        new PersistentPlayerNode(data, value, left.rightChild, right));
+            }
+            // LR-rotation
+            PersistentPlayerNode lr = left.rightChild;
+            return new PersistentPlayerNode(lr.data, lr.value,
+                    new PersistentPlayerNode(left.data, left.value, left.leftChild, lr.leftChild),
+                    new PersistentPlayerNode(data, value, lr.rightChild, right));
+        } else if (bf < -1) { // tree right heavy
+            if (height(right.rightChild) >= height(right.leftChild)) {
+                // L-rotation
+                return new PersistentPlayerNode(right.data, right.value,
+                        new PersistentPlayerNode(data, value, left, right.leftChild), right.rightChild);
+            }
+            // RL-rotation
+            PersistentPlayerNode rl = right.leftChild;
+            return new PersistentPlayerNode(rl.data, rl.value,
+                    new PersistentPlayerNode(data, value, left, rl.leftChild),
+                    new PersistentPlayerNode(right.data, right.value, rl.rightChild, right.rightChild));
+        }
+        return new PersistentPlayerNode(data, value, left, right);
+    }
+
+    /**
+     * Insert a player into a copy of the tree, nothing happens if the value is already present
+     * @param newGuy the player
+     * @param value  the value that AVL tree's BST property based on
+     * @return root of the new tree, sharing every subtree off the search path with this one
+     * Runtime: O(log n)
+     */
+    public PersistentPlayerNode insert(Player newGuy, double value) {
+        if (value == this.value) {
+            return this;
+        } else if (value < this.value) {
+            PersistentPlayerNode left = leftChild == null ? new PersistentPlayerNode(newGuy, value) : leftChild.insert(newGuy, value);
+            return left == leftChild ? this : balance(data, this.value, left, rightChild);
+        } else {
+            PersistentPlayerNode right = rightChild == null ? new PersistentPlayerNode(newGuy, value) : rightChild.insert(newGuy, value);
+            return right == rightChild ? this : balance(data, this.value, leftChild, right);
+        }
+    }
+
+    /**
+     * Delete the node with given value from a copy of the tree
+     * @param value the value of node that needs to be deleted
+     * @return root of the new tree, null if it is empty
+     * Runtime: O(log n)
+     */
+    public PersistentPlayerNode delete(double value) {
+        if (value < this.value) {
+            PersistentPlayerNode left = leftChild == null ? null : leftChild.delete(value);
+            return left == leftChild ? this : balance(data, this.value, left, rightChild);
+        } else if (value > this.value) {
+            PersistentPlayerNode right = rightChild == null ? null : rightChild.delete(value);
+            return right == rightChild ? this : balance(data, this.value, leftChild, right);
+        } else if (leftChild == null || rightChild == null) {
+            return leftChild != null ? leftChild : rightChild;
+        }
+        PersistentPlayerNode successor = rightChild;
+        while (successor.leftChild != null) {
+            successor = successor.leftChild;
+        }
+        return balance(successor.data, successor.value, leftChild, rightChild.delete(successor.value));
+    }
+
+    /**
+     * Get the player with given value
+     * @param value the value of the player
+     * @return the player, or null if the value is not in the tree
+     * Runtime: O(log n)
+     */
+    public Player getPlayer(double value) {
+        PersistentPlayerNode cur = this;
+        while (cur != null && cur.value != value) {
+            cur = value < cur.value ? cur.leftChild : cur.rightChild;
+        }
+        return cur != null ? cur.data : null;
+    }
+
+    /**
+     * Get the rank of the node that with a given value
+     * @param value the value of the node
+     * @return the rank of node, 1 being the highest value, returns -1 if node is not in the tree
+     * Runtime: O(log n)
+     */
+    public int getRank(double value) {
+        int rank = 0;
+        PersistentPlayerNode cur = this;
+        while (cur != null) {
+            if (cur.value == value) {
+                return rank + size(cur.rightChild) + 1;
+            } else if (cur.value < value) {
+                cur = cur.rightChild;
+            } else {
+                rank += size(cur.rightChild) + 1;
+                cur = cur.leftChild;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get the player at a given rank
+     * @param rank the rank, 1 being the player with the highest value
+     * @return the player, or null if rank is out of range
+     * Runtime: O(log n)
+     */
+    public Player getPlayerAtRank(int rank) {
+        PersistentPlayerNode cur = rank > 0 ? this : null;
+        while (cur != null) {
+            int own = size(cur.rightChild) + 1;
+            if (rank == own) {
+                return cur.data;
+            } else if (rank < own) {
+                cur = cur.rightChild;
+            } else {
+                rank -= own;
+                cur = cur.leftChild;
+            }
+        }
+        return null;
+    }
+}
@@ -4,13 +4,23 @@ public class Player {
 	private String name;
 	private int id;
 	private double ELO;
-
+	// Glicko-2 rating deviation and volatility, only moved by rating periods
+	private double deviation=350.0;
+	private double volatility=0.06;
+	// 10^(ELO/400), the logistic strength behind the expected score, NaN until needed after ELO changes.
+	// A match changes both ratings, so logVictory and stalemate recompute both strengths every time and
+	// are no faster for the cache, it only saves the Math.pow calls of expectedScore between matches
+	private double strength;
+	// when set, expected scores are looked up instead of computed from the strengths
+	private static ExpectedScoreTable expectedScores=null;
+	// computes every rating change, the classic K=32 Elo unless replaced
+	private static RatingEngine ratingEngine=new EloRatingEngine(EloRatingEngine.K_FACTOR);
 
 
 	public Player(String name,int id,double ELO){
 		this.name = name;
 		this.id=id;
-		this.ELO=ELO;
+		setELO(ELO);
 	}
 
 	public String getName(){
@@ -25,36 +35,92 @@ public class Player {
 		return ELO;
 	}
 
+	public double getDeviation(){
+		return deviation;
+	}
+
+	public double getVolatility(){
+		return volatility;
+	}
+
+	public void setRating(double ELO,double deviation,double volatility){
+		setELO(ELO);
+		this.deviation=deviation;
+		this.volatility=volatility;
+	}
+
+	public static void useRatingEngine(RatingEngine engine) {
+		ratingEngine=engine;
+	}
+
+	public static void useExpectedScoreTable(ExpectedScoreTable table) {
+		expectedScores=table;
+	}
+
+	private double strength() {
+		if(Double.isNaN(strength)){
+			strength=Math.pow(10.0,ELO/400.0);
+		}
+		return strength;
+	}
+
+	public double expectedScore(Player opponent) {
+		if(expectedScores!=null){
+			return expectedScores.expectedScore(this.ELO-opponent.ELO);
+		}
+		double myELO=this.strength();
+		return myELO/(myELO+opponent.strength());
+	}
+
+	private void setELO(double ELO) {
+		this.ELO=ELO;
+		this.strength=Double.NaN;
+	}
+
 	public void logVictory(Player defeatedPlayer) {
-		this.ELO+=defeatedPlayer.logDefeat(this);
+		setELO(this.ELO+defeatedPlayer.logDefeat(this));
 
 	}
 
 	private double logDefeat(Player victoriousPlayer) {
-		double theirELO=victoriousPlayer.getELO();
-		theirELO=Math.pow(10.0,theirELO/400.0);
-		double myELO=Math.pow(10.0,this.ELO/400.0);
-		double totalSkill=myELO+theirELO;
-		double myExp=myELO/totalSkill;
-		double theirExp=theirELO/totalSkill;
-		this.ELO-=32.0*myExp;
-		return 32.0*(1.0-theirExp);
+		double myChange=ratingEngine.ratingChange(this,victoriousPlayer,0.0);
+		double theirChange=ratingEngine.ratingChange(victoriousPlayer,this,1.0);
+		setELO(this.ELO+myChange);
+		return theirChange;
 	}
 
 	public void stalemate(Player worthyAdversary) {
-		this.ELO+=worthyAdversary.internalStalemate(this);
+		setELO(this.ELO+worthyAdversary.internalStalemate(this));
 	}
 
 	public double internalStalemate(Player worthyAdversary) {
-		double theirELO=worthyAdversary.getELO();
-		theirELO=Math.pow(10.0,theirELO/400.0);
-		double myELO=Math.pow(10.0,this.ELO/400.0);
-		double totalSkill=myELO+theirELO;
-		double myExp=myELO/totalSkill;
-		double theirExp=theirELO/totalSkill;
-		this.ELO+=32.0*(0.5-myExp);
-
-		return 32.0*(0.5-theirExp);
+		double myChange=ratingEngine.ratingChange(this,worthyAdversary,0.5);
+		double theirChange=ratingEngine.ratingChange(worthyAdversary,this,0.5);
+		setELO(this.ELO+myChange);
+
+		return theirChange;
+	}
+
+	// the rating change of one match between two players, outcome 1 if the first player won,
+	// 2 if the second player won, 0 for a draw, any other outcome changes nothing and returns false
+	public static boolean applyOutcome(Player p1,Player p2,int outcome) {
+		if(outcome==2){
+			p2.logVictory(p1);
+		}else if(outcome==1){
+			p1.logVictory(p2);
+		}else if(outcome==0){
+			p1.stalemate(p2);
+		}else{
+			return false;
+		}
+		return true;
+	}
+
+	public Player copy() {
+		Player p=new Player(name,id,ELO);
+		p.deviation=deviation;
+		p.volatility=volatility;
+		return p;
 	}
 
 	public boolean equals(Player person2) {
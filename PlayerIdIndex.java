@@ -0,0 +1,197 @@
+package main;
+
+public class PlayerIdIndex {
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] ids;
+    private Player[] players;
+    private int size;
+
+    /**
+     * Constructor, initialize an empty index from player id to player
+     * Runtime: O(1)
+     */
+    public PlayerIdIndex() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Constructor, initialize an empty index sized for an expected number of players
+     * @param expected the number of players expected to be added
+     * Runtime: O(expected)
+     */
+    public PlayerIdIndex(int expected) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expected * 2) {
+            capacity <<= 1;
+        }
+        this.ids = new int[capacity];
+        this.players = new Player[capacity];
+        this.size = 0;
+    }
+
+    /**
+     * Constructor, initialize an index holding the given players
+     * @param people the players, a later player with a duplicate id is skipped
+     * Runtime: O(n)
+     */
+    public PlayerIdIndex(Player[] people) {
+        this(people.length);
+        for (Player p : people) {
+            add(p);
+        }
+    }
+
+    /**
+     * Getter method for size
+     * @return number of players in the index
+     * Runtime: O(1)
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Spread the bits of an id so that consecutive ids do not cluster
+     * @param id the player id
+     * @return slot of the id in a table of given mask
+     * Runtime: O(1)
+     */
+    private static int slot(int id, int mask) {
+        int h = id * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Get the player with given id
+     * @param id the id of the player
+     * @return the player, or null if no player has this id
+     * Runtime: O(1) expected
+     */
+    public Player get(int id) {
+        int[] ids = this.ids;
+        Player[] players = this.players;
+        int mask = players.length - 1;
+        for (int i = slot(id, mask); players[i] != null; i = (i + 1) & mask) {
+            if (ids[i] == id) {
+                return players[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Add a player to the index, nothing happens if the id is already taken
+     * @param p the player
+     * @return whether the player was added
+     * Runtime: O(1) expected
+     */
+    public boolean add(Player p) {
+        int mask = players.length - 1;
+        int i = slot(p.getID(), mask);
+        while (players[i] != null) {
+            if (ids[i] == p.getID()) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        ids[i] = p.getID();
+        players[i] = p;
+        if (++size * 2 > players.length) {
+            resize(players.length << 1);
+        }
+        return true;
+    }
+
+    /**
+     * Add a player to the index, replacing any player with the same id
+     * @param p the player
+     * @return the replaced player, or null if the id was free
+     * Runtime: O(1) expected
+     */
+    public Player put(Player p) {
+        int mask = players.length - 1;
+        for (int i = slot(p.getID(), mask); players[i] != null; i = (i + 1) & mask) {
+            if (ids[i] == p.getID()) {
+                Player old = players[i];
+                players[i] = p;
+                return old;
+            }
+        }
+        add(p);
+        return null;
+    }
+
+    /**
+     * Remove the player with given id, later entries of the probe run are shifted
+     * back into the gap so that no tombstones are needed
+     * @param id the id of the player
+     * @return the removed player, or null if no player has this id
+     * Runtime: O(1) expected
+     */
+    public Player remove(int id) {
+        int mask = players.length - 1;
+        int i = slot(id, mask);
+        while (players[i] != null && ids[i] != id) {
+            i = (i + 1) & mask;
+        }
+        Player removed = players[i];
+        if (removed == null) {
+            return null;
+        }
+        int gap = i;
+        for (int j = (i + 1) & mask; players[j] != null; j = (j + 1) & mask) {
+            int home = slot(ids[j], mask);
+            // move j into the gap unless its home slot lies cyclically in (gap, j]
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                ids[gap] = ids[j];
+                players[gap] = players[j];
+                gap = j;
+            }
+        }
+        players[gap] = null;
+        size--;
+        return removed;
+    }
+
+    /**
+     * Get every player in the index
+     * @return the players, in no particular order
+     * Runtime: O(n)
+     */
+    public Player[] players() {
+        Player[] res = new Player[size];
+        int n = 0;
+        for (Player p : players) {
+            if (p != null) {
+                res[n++] = p;
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Move every player into a table of given capacity
+     * @param capacity the new capacity, a power of two
+     * Runtime: O(n)
+     */
+    private void resize(int capacity) {
+        int[] oldIds = ids;
+        Player[] oldPlayers = players;
+        int[] newIds = new int[capacity];
+        Player[] newPlayers = new Player[capacity];
+        int mask = capacity - 1;
+        for (int k = 0; k < oldPlayers.length; k++) {
+            if (oldPlayers[k] != null) {
+                int i = slot(oldIds[k], mask);
+                while (newPlayers[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                newIds[i] = oldIds[k];
+                newPlayers[i] = oldPlayers[k];
+            }
+        }
+        this.ids = newIds;
+        this.players = newPlayers;
+    }
+}
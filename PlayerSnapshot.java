@@ -0,0 +1,200 @@
+package main;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+
+public class PlayerSnapshot {
+    private static final int MAGIC = 0x41564C53; // "AVLS"
+    private static final int VERSION = 1;
+    // magic, version, player count (4 bytes each), last record id (8 bytes)
+    private static final int HEADER_SIZE = 20;
+    // id (4), ELO, deviation, volatility (8 each), name offset, name length (4 each)
+    private static final int RECORD_SIZE = 36;
+
+    private final AVLPlayerNode eloTree;
+    private final PlayerIdIndex idIndex;
+    private final long lastRecordId;
+
+    /**
+     * Constructor, initialize a loaded snapshot
+     * @param eloTree      the players keyed by ELO
+     * @param idIndex      the players keyed by id
+     * @param lastRecordId id of the last match log record the ratings include
+     * Runtime: O(1)
+     */
+    private PlayerSnapshot(AVLPlayerNode eloTree, PlayerIdIndex idIndex, long lastRecordId) {
+        this.eloTree = eloTree;
+        this.idIndex = idIndex;
+        this.lastRecordId = lastRecordId;
+    }
+
+    /**
+     * Getter method for the ELO tree
+     * @return root of the players keyed by ELO, null if there are none
+     * Runtime: O(1)
+     */
+    public AVLPlayerNode getEloTree() {
+        return eloTree;
+    }
+
+    /**
+     * Getter method for the id index
+     * @return the players keyed by id
+     * Runtime: O(1)
+     */
+    public PlayerIdIndex getIdIndex() {
+        return idIndex;
+    }
+
+    /**
+     * Getter method for last record id
+     * @return id of the last record in the match log that the ratings include
+     * Runtime: O(1)
+     */
+    public long getLastRecordId() {
+        return lastRecordId;
+    }
+
+    /**
+     * Write a snapshot of every player in one sequential pass. The file holds a header,
+     * one fixed-width record per player in ELO order, then the UTF-8 names back to back.
+     * It is written next to the target and moved over it once synced, so a crash never
+     * leaves a half-written snapshot behind
+     * @param path         the snapshot file
+     * @param eloTree      root of the players keyed by ELO, may be null
+     * @param idIndex      every player, including any left out of the ELO tree for sharing
+     *                     their ELO with another player
+     * @param lastRecordId id of the last record in the match log that the ratings include
+     * @throws IOException if the file cannot be written
+     * Runtime: O(n) if every player is in the ELO tree, O(n log n) otherwise
+     */
+    public static void write(Path path, AVLPlayerNode eloTree, PlayerIdIndex idIndex, long lastRecordId) throws IOException {
+        Player[] players = inEloOrder(eloTree, idIndex);
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer out = ByteBuffer.allocate(1 << 16);
+            out.putInt(MAGIC).putInt(VERSION).putInt(players.length).putLong(lastRecordId);
+            ByteArrayOutputStream names = new ByteArrayOutputStream();
+            for (Player p : players) {
+                byte[] name = p.getName().getBytes(StandardCharsets.UTF_8);
+                if (out.remaining() < RECORD_SIZE) {
+                    drain(out, channel);
+                }
+                out.putInt(p.getID()).putDouble(p.getELO()).putDouble(p.getDeviation()).putDouble(p.getVolatility())
+                        .putInt(names.size()).putInt(name.length);
+                names.write(name, 0, name.length);
+            }
+            drain(out, channel);
+            names.writeTo(Channels.newOutputStream(channel));
+            channel.force(true);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // the match log drops what a snapshot includes, so the move itself has to reach the disk
+        try (FileChannel dir = FileChannel.open(path.toAbsolutePath().getParent(), StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            // not every platform can open a directory, there the move is as durable as it gets
+        }
+    }
+
+    /**
+     * Helper method, list every player in ascending order of ELO. Where players share an
+     * ELO the one in the tree comes first, so it is the one a reload puts back in the tree
+     * @param eloTree root of the players keyed by ELO, may be null
+     * @param idIndex every player
+     * @return the players
+     * Runtime: O(n) if every player is in the ELO tree, O(n log n) otherwise
+     */
+    private static Player[] inEloOrder(AVLPlayerNode eloTree, PlayerIdIndex idIndex) {
+        int inTree = eloTree == null ? 0 : eloTree.size();
+        Player[] players = new Player[inTree];
+        int n = 0;
+        if (eloTree != null) {
+            for (Iterator<Player> it = eloTree.ascendingIterator(); it.hasNext(); ) {
+                players[n++] = it.next();
+            }
+        }
+        if (inTree == idIndex.size()) {
+            return players;
+        }
+        players = Arrays.copyOf(players, inTree + idIndex.size());
+        for (Player p : idIndex.players()) {
+            if (eloTree == null || eloTree.getPlayer(p.getELO()) != p) {
+                players[n++] = p;
+            }
+        }
+        // stable, so the players from the tree stay ahead of those sharing their ELO
+        Arrays.sort(players, 0, n, Comparator.comparingDouble(Player::getELO));
+        return Arrays.copyOf(players, n);
+    }
+
+    /**
+     * Write everything put in a buffer to a channel and clear the buffer
+     * @param buf     the buffer, in write mode
+     * @param channel the channel to write to
+     * @throws IOException if the channel cannot be written
+     * Runtime: O(bytes in the buffer)
+     */
+    private static void drain(ByteBuffer buf, FileChannel channel) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        buf.clear();
+    }
+
+    /**
+     * Load a snapshot by memory-mapping the file and bulk-building both player structures,
+     * records are in ELO order so the ELO tree is built without sorting. Every player goes
+     * into the id index, including those the ELO tree leaves out for sharing an ELO
+     * @param path the snapshot file
+     * @return the snapshot
+     * @throws IOException if the file cannot be read or is not a snapshot
+     * Runtime: O(n)
+     */
+    public static PlayerSnapshot load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("not a snapshot file: " + path);
+            }
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION) {
+                throw new IOException("not a snapshot file: " + path);
+            }
+            int n = buf.getInt(8);
+            long lastRecordId = buf.getLong(12);
+            long namesStart = HEADER_SIZE + (long) n * RECORD_SIZE;
+            if (n < 0 || namesStart > size) {
+                throw new IOException("truncated snapshot file: " + path);
+            }
+            byte[] names = new byte[(int) (size - namesStart)];
+            buf.get((int) namesStart, names);
+
+            Player[] players = new Player[n];
+            for (int i = 0, at = HEADER_SIZE; i < n; i++, at += RECORD_SIZE) {
+                double elo = buf.getDouble(at + 4);
+                int nameOffset = buf.getInt(at + 28), nameLength = buf.getInt(at + 32);
+                if (nameOffset < 0 || nameLength < 0 || nameOffset > names.length - nameLength) {
+                    throw new IOException("corrupt snapshot file: " + path);
+                }
+                players[i] = new Player(new String(names, nameOffset, nameLength, StandardCharsets.UTF_8), buf.getInt(at), elo);
+                players[i].setRating(elo, buf.getDouble(at + 12), buf.getDouble(at + 20));
+            }
+            return new PlayerSnapshot(AVLPlayerNode.buildBalanced(players, Player::getELO), new PlayerIdIndex(players), lastRecordId);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package main;
+
+public interface RatingEngine {
+    /**
+     * Compute how much a player's rating changes after one match, without changing
+     * either player. Player asks for both changes before applying either, so an engine
+     * sees the ratings from before the match. Implementations should not allocate, as
+     * this runs once per player on every match
+     * @param me       the player whose rating changes
+     * @param opponent the other player
+     * @param score    the player's score, 1 for a win, 0.5 for a draw, 0 for a loss
+     * @return change to add to the player's rating
+     * Runtime: O(1)
+     */
+    double ratingChange(Player me, Player opponent, double score);
+}
@@ -11,15 +11,113 @@ package main;
  * @author COSI 21a-Team
  */
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.InputMismatchException;
 import java.util.Scanner;
 
 public class ScoreKeeper {
-    public static void main(String[] args) {
-        Scanner scan = new Scanner(System.in);
-        Player[] startPlayers = getPlayers(scan);
-        AVLPlayerNode eloTree = getTree(startPlayers, true);
-        AVLPlayerNode idTree = getTree(startPlayers, false);
-        driverLoop(scan, eloTree, idTree, startPlayers.length);
+    // records forced to the match log together
+    private static final int LOG_GROUP_SIZE = 64;
+    // records logged between two snapshots
+    private static final int SNAPSHOT_INTERVAL = 100000;
+
+    // optional arguments: --snapshot FILE recovers the players from a snapshot, or saves one
+    // of the starting players, then saves a new snapshot periodically and on exit,
+    // --log FILE appends every match result, added and removed player to a match log that is
+    // replayed on top of the snapshot, so it needs --snapshot too,
+    // --import FILE reads the starting players from a file of name,id,elo lines instead of prompting,
+    // --batch [FILE] runs the commands in FILE, or standard input, without printing any prompts
+    public static void main(String[] args) throws IOException {
+        Path logPath = null, snapshotPath = null, importPath = null, batchPath = null;
+        boolean batch = false;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--batch")) {
+                batch = true;
+                if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                    batchPath = Paths.get(args[++i]);
+                }
+            } else if (i + 1 < args.length) {
+                if (args[i].equals("--log")) {
+                    logPath = Paths.get(args[++i]);
+                } else if (args[i].equals("--snapshot")) {
+                    snapshotPath = Paths.get(args[++i]);
+                } else if (args[i].equals("--import")) {
+                    importPath = Paths.get(args[++i]);
+                }
+            }
+        }
+        if (logPath != null && snapshotPath == null) {
+            System.err.println("--log needs --snapshot, the log is only replayed on top of a snapshot");
+            System.exit(1);
+        }
+        // a Scanner reads ahead, so standard input only gets one reader
+        Scanner scan = batch ? null : new Scanner(System.in);
+        try (MatchLog log = logPath != null ? MatchLog.open(logPath, LOG_GROUP_SIZE) : null;
+             TokenReader in = !batch ? null : batchPath != null ? TokenReader.open(batchPath) : new TokenReader(Channels.newChannel(System.in))) {
+            AVLPlayerNode eloTree;
+            PlayerIdIndex idIndex;
+            if (snapshotPath != null && Files.exists(snapshotPath)) {
+                long start = System.nanoTime();
+                PlayerSnapshot snapshot = PlayerSnapshot.load(snapshotPath);
+                long nanos = Math.max(System.nanoTime() - start, 1);
+                System.err.printf("Loaded %d players in %.3f s (%.0f players/sec)\n", snapshot.getIdIndex().size(), nanos / 1e9, snapshot.getIdIndex().size() * 1e9 / nanos);
+                eloTree = recover(snapshot, log);
+                idIndex = snapshot.getIdIndex();
+            } else {
+                Player[] startPlayers = importPath != null ? importPlayers(importPath) : batch ? readPlayers(in) : getPlayers(scan);
+                eloTree = getTree(startPlayers, true);
+                idIndex = new PlayerIdIndex(startPlayers);
+                // later matches are only replayed on top of a snapshot, so save one right away
+                if (snapshotPath != null) {
+                    saveSnapshot(snapshotPath, eloTree, idIndex, log);
+                }
+            }
+            if (batch) {
+                batchLoop(in, eloTree, idIndex, idIndex.size(), log, snapshotPath);
+            } else {
+                driverLoop(scan, eloTree, idIndex, idIndex.size(), log, snapshotPath);
+            }
+        }
+    }
+
+    public static AVLPlayerNode recover(PlayerSnapshot snapshot, MatchLog log) throws IOException {
+        if (log == null) {
+            return snapshot.getEloTree();
+        }
+        long start = System.nanoTime();
+        Recovery recovery = new Recovery(snapshot.getEloTree(), snapshot.getIdIndex());
+        log.replayAfter(snapshot.getLastRecordId(), recovery);
+        AVLPlayerNode eloTree = recovery.finish();
+        long nanos = Math.max(System.nanoTime() - start, 1);
+        System.err.printf("Replayed %d matches and %d player changes in %.3f s (%.0f matches/sec)\n", recovery.matches, recovery.playerChanges, nanos / 1e9, recovery.matches * 1e9 / nanos);
+        return eloTree;
+    }
+
+    public static void saveSnapshot(Path snapshotPath, AVLPlayerNode eloTree, PlayerIdIndex idIndex, MatchLog log) {
+        try {
+            long lastRecordId = 0;
+            if (log != null) {
+                // the snapshot must not include records the log could still lose
+                log.commit();
+                lastRecordId = log.getLastRecordId();
+            }
+            PlayerSnapshot.write(snapshotPath, eloTree, idIndex, lastRecordId);
+            if (log != null) {
+                // the snapshot includes every record, so the log only needs to keep what comes next
+                log.reset();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     public static Player[] getPlayers(Scanner scan) {
@@ -37,6 +135,39 @@ public class ScoreKeeper {
         return people;
     }
 
+    public static Player[] readPlayers(TokenReader in) throws IOException {
+        int n = in.nextInt();
+        // there is no prompt to ask again, so a short scoreboard is an error like a bad token
+        if (n < 3) {
+            throw new InputMismatchException("must be at least 3 players, not " + n);
+        }
+        Player[] people = new Player[n];
+        for (int i = 0; i < n; i++) {
+            people[i] = new Player(in.next(), in.nextInt(), in.nextDouble());
+        }
+        return people;
+    }
+
+    public static Player[] importPlayers(Path path) throws IOException {
+        try (TokenReader in = TokenReader.open(path)) {
+            Player[] people = new Player[1024];
+            int n = 0;
+            while (in.hasNext()) {
+                String name = in.next();
+                int id = in.nextInt();
+                double elo = in.nextDouble();
+                if (n == people.length) {
+                    people = Arrays.copyOf(people, n * 2);
+                }
+                people[n++] = new Player(name, id, elo);
+            }
+            if (n < 3) {
+                throw new IOException(path + " has " + n + " players, must be at least 3");
+            }
+            return Arrays.copyOf(people, n);
+        }
+    }
+
     public static Player getNextPlayer(Scanner scan) {
         System.out.println("Please enter the name of a player you wish to add");
         String name = scan.next();
@@ -49,107 +180,295 @@ public class ScoreKeeper {
     }
 
     public static AVLPlayerNode getTree(Player[] players, boolean useElo) {
-        main.AVLPlayerNode tree = new main.AVLPlayerNode(players[0], players[0].getID());
         if (useElo) {
-            tree = new main.AVLPlayerNode(players[0], players[0].getELO());
-        }
-        for (int i = 1; i < players.length; i++) {
-            if (useElo) {
-                tree = tree.insert(players[i], players[i].getELO());
-            } else {
-                tree = tree.insert(players[i], players[i].getID());
-            }
+            return AVLPlayerNode.buildBalanced(players, Player::getELO);
         }
-        return tree;
+        return AVLPlayerNode.buildBalanced(players, Player::getID);
     }
 
-    public static void checkRank(AVLPlayerNode eloTree, AVLPlayerNode idTree, Scanner scan) {
+    public static void checkRank(AVLPlayerNode eloTree, PlayerIdIndex idIndex, Scanner scan, Writer out) throws IOException {
         System.out.println("Please enter the ID number of the player whose rank you wish to check");
-        int id = scan.nextInt();
-        Player p = idTree.getPlayer(id);
-        System.out.printf("ID: %d NAME: %s RANK: %d\n", id, p.getName(), eloTree.getRank(p.getELO()));
+        printRank(eloTree, idIndex, scan.nextInt(), out);
     }
 
-    public static void checkELO(AVLPlayerNode idTree, Scanner scan) {
+    public static void checkELO(PlayerIdIndex idIndex, Scanner scan, Writer out) throws IOException {
         System.out.println("Please enter the ID number of the player whose ELO you wish to check");
-        int id = scan.nextInt();
-        Player p = idTree.getPlayer(id);
-        System.out.printf("ID: %d NAME: %s ELO: %f\n", id, p.getName(), p.getELO());
-    }
-
-    public static void driverLoop(Scanner scan, AVLPlayerNode eloTree, AVLPlayerNode idTree, int numPeople) {
-        boolean keepGoing = true;
-        while (keepGoing) {
-            System.out.print("What would you like to do next?\nA/D to Add/Delete a player to the scoreboard\nR/E to check the Rank or Elo rating of a player (requires player ID)\nL to list the entire leader board in order of Elo (decreasing order)\nM to log the outcome of a chess Match between two players\nP to Print the elo tree in parentheses format\nX to eXit\n");
-            String answer = scan.next();
-            char ans = answer.charAt(0);
-            switch (ans) {
-                case 'X':
-                    keepGoing = false;
-                    break;
-                case 'A':
-                    main.Player p = getNextPlayer(scan);
-                    eloTree = eloTree.insert(p, p.getELO());
-                    idTree = idTree.insert(p, p.getID());
-                    numPeople++;
-                    break;
-                case 'D':
-                    if (numPeople > 3) {
-                        System.out.println("Please enter the ID number of the player you wish to remove from the system");
-                        int id = scan.nextInt();
-                        main.Player curtains = idTree.getPlayer((double)id);
-                        idTree=idTree.delete(id);
-                        eloTree=eloTree.delete(curtains.getELO());
-                        numPeople--;
-                    } else {
-                        System.out.println("Cannot afford to lose any more people");
+        printELO(idIndex, scan.nextInt(), out);
+    }
+
+    // the commands below are shared by driverLoop and batchLoop, which only differ in how
+    // they read the arguments; the ones that change the ELO tree return its new root
+
+    public static AVLPlayerNode addPlayer(AVLPlayerNode eloTree, PlayerIdIndex idIndex, Player p, MatchLog log, Path snapshotPath) {
+        eloTree = eloTree.insert(p, p.getELO());
+        idIndex.add(p);
+        recordAdd(eloTree, idIndex, p, log, snapshotPath);
+        return eloTree;
+    }
+
+    public static AVLPlayerNode removePlayer(AVLPlayerNode eloTree, PlayerIdIndex idIndex, int id, MatchLog log, Path snapshotPath) {
+        Player curtains = idIndex.remove(id);
+        // a player whose ELO was already taken when it was added or updated is not in the ELO tree
+        if (eloTree.getPlayer(curtains.getELO()) == curtains) {
+            eloTree = eloTree.delete(curtains.getELO());
+        }
+        recordRemove(eloTree, idIndex, id, log, snapshotPath);
+        return eloTree;
+    }
+
+    public static void printRank(AVLPlayerNode eloTree, PlayerIdIndex idIndex, int id, Writer out) throws IOException {
+        Player p = idIndex.get(id);
+        out.write(String.format("ID: %d NAME: %s RANK: %d\n", id, p.getName(), eloTree.getRank(p.getELO())));
+    }
+
+    public static void printELO(PlayerIdIndex idIndex, int id, Writer out) throws IOException {
+        Player p = idIndex.get(id);
+        out.write(String.format("ID: %d NAME: %s ELO: %f\n", id, p.getName(), p.getELO()));
+    }
+
+    public static void printScoreboard(AVLPlayerNode eloTree, Writer out) throws IOException {
+        eloTree.scoreboard(out);
+        out.write('\n');
+    }
+
+    public static void printTrees(AVLPlayerNode eloTree, PlayerIdIndex idIndex, Writer out) throws IOException {
+        out.write("ELO tree: ");
+        eloTree.treeString(out);
+        out.write("\nID tree: ");
+        getTree(idIndex.players(), false).treeString(out);
+        out.write('\n');
+    }
+
+    public static AVLPlayerNode logMatch(AVLPlayerNode eloTree, PlayerIdIndex idIndex, int id1, int id2, int outcome, MatchLog log, Path snapshotPath, Writer out) throws IOException {
+        Player p1 = idIndex.get(id1), p2 = idIndex.get(id2);
+        double elo1 = p1.getELO(), elo2 = p2.getELO();
+        if (!Player.applyOutcome(p1, p2, outcome)) {
+            out.write("Invalid command\n");
+            return eloTree;
+        }
+        eloTree = eloTree.updateValue(p1, elo1, p1.getELO());
+        eloTree = eloTree.updateValue(p2, elo2, p2.getELO());
+        recordMatch(eloTree, idIndex, id1, id2, outcome, log, snapshotPath);
+        return eloTree;
+    }
+
+    public static void recordMatch(AVLPlayerNode eloTree, PlayerIdIndex idIndex, int id1, int id2, int outcome, MatchLog log, Path snapshotPath) {
+        if (log == null) {
+            return;
+        }
+        long before = log.getLastRecordId();
+        try {
+            log.append(id1, id2, outcome);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        snapshotIfDue(before, eloTree, idIndex, log, snapshotPath);
+    }
+
+    public static void recordAdd(AVLPlayerNode eloTree, PlayerIdIndex idIndex, Player p, MatchLog log, Path snapshotPath) {
+        if (log == null) {
+            return;
+        }
+        long before = log.getLastRecordId();
+        try {
+            log.appendAdd(p);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        snapshotIfDue(before, eloTree, idIndex, log, snapshotPath);
+    }
+
+    public static void recordRemove(AVLPlayerNode eloTree, PlayerIdIndex idIndex, int id, MatchLog log, Path snapshotPath) {
+        if (log == null) {
+            return;
+        }
+        long before = log.getLastRecordId();
+        try {
+            log.appendRemove(id);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        snapshotIfDue(before, eloTree, idIndex, log, snapshotPath);
+    }
+
+    // an added player takes several records, so look for a crossed interval, not a multiple
+    private static void snapshotIfDue(long before, AVLPlayerNode eloTree, PlayerIdIndex idIndex, MatchLog log, Path snapshotPath) {
+        if (snapshotPath != null && before / SNAPSHOT_INTERVAL != log.getLastRecordId() / SNAPSHOT_INTERVAL) {
+            saveSnapshot(snapshotPath, eloTree, idIndex, log);
+        }
+    }
+
+    public static void driverLoop(Scanner scan, AVLPlayerNode eloTree, PlayerIdIndex idIndex, int numPeople) {
+        driverLoop(scan, eloTree, idIndex, numPeople, null, null);
+    }
+
+    public static void driverLoop(Scanner scan, AVLPlayerNode eloTree, PlayerIdIndex idIndex, int numPeople, MatchLog log, Path snapshotPath) {
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out));
+        // the prompts go straight to System.out, so the results are flushed after every command
+        try {
+            boolean keepGoing = true;
+            while (keepGoing) {
+                System.out.print("What would you like to do next?\nA/D to Add/Delete a player to the scoreboard\nR/E to check the Rank or Elo rating of a player (requires player ID)\nL to list the entire leader board in order of Elo (decreasing order)\nM to log the outcome of a chess Match between two players\nP to Print the elo tree in parentheses format\nX to eXit\n");
+                String answer = scan.next();
+                char ans = answer.charAt(0);
+                switch (ans) {
+                    case 'X':
+                        keepGoing = false;
+                        if (snapshotPath != null) {
+                            saveSnapshot(snapshotPath, eloTree, idIndex, log);
+                        }
+                        break;
+                    case 'A':
+                        eloTree = addPlayer(eloTree, idIndex, getNextPlayer(scan), log, snapshotPath);
+                        numPeople++;
+                        break;
+                    case 'D':
+                        if (numPeople > 3) {
+                            System.out.println("Please enter the ID number of the player you wish to remove from the system");
+                            eloTree = removePlayer(eloTree, idIndex, scan.nextInt(), log, snapshotPath);
+                            numPeople--;
+                        } else {
+                            out.write("Cannot afford to lose any more people\n");
+                        }
+                        break;
+                    case 'R':
+                        checkRank(eloTree, idIndex, scan, out);
+                        break;
+                    case 'E':
+                        checkELO(idIndex, scan, out);
+                        break;
+                    case 'L':
+                        printScoreboard(eloTree, out);
+                        break;
+                    case 'P':
+                        printTrees(eloTree, idIndex, out);
+                        break;
+                    case 'M': {
+                        System.out.println("Please enter the ID number of the first player in the match");
+                        int id1 = scan.nextInt();
+                        System.out.println("Please enter the ID number of the second player in the match");
+                        int id2 = scan.nextInt();
+                        System.out.printf("Please enter the outcome of the match\n1 if the first player (%s) was the winner\n2 if the second player (%s) was the winner\n0 if the match was a draw\n", idIndex.get(id1).getName(), idIndex.get(id2).getName());
+                        eloTree = logMatch(eloTree, idIndex, id1, id2, scan.nextInt(), log, snapshotPath, out);
+                        break;
                     }
-                    break;
-                case 'R':
-                    checkRank(eloTree, idTree, scan);
-                    break;
-                case 'E':
-                    checkELO(idTree, scan);
-                    break;
-                case 'L':
-                    System.out.println(eloTree.scoreboard());
-                    break;
-                case 'P':
-                    System.out.println("ELO tree: " + eloTree.treeString());
-                    System.out.println("ID tree: " + idTree.treeString());
-                    break;
-                case 'M':
-				System.out.println("Please enter the ID number of the first player in the match");
-				int id1=scan.nextInt();
-				main.Player p1 = idTree.getPlayer((double)id1);
-				idTree=idTree.delete((double)id1);
-				eloTree=eloTree.delete(p1.getELO());
-				System.out.println("Please enter the ID number of the second player in the match");
-				int id2=scan.nextInt();
-				main.Player p2 = idTree.getPlayer((double)id2);
-				idTree=idTree.delete((double)id2);
-				eloTree=eloTree.delete(p2.getELO());
-				System.out.printf("Please enter the outcome of the match\n1 if the first player (%s) was the winner\n2 if the second player (%s) was the winner\n0 if the match was a draw\n",p1.getName(),p2.getName());
-				int n = scan.nextInt();
-				if(n==2){
-				    p2.logVictory(p1);
-				}else if(n==1){
-				    p1.logVictory(p2);
-				}else if(n==0){
-				    p1.stalemate(p2);
-				}else{
-				    System.out.println("Invalid command");
-				    break;
-				}
-				idTree=idTree.insert(p1,(double)p1.getID());
-				idTree=idTree.insert(p2,(double)p2.getID());
-				eloTree=eloTree.insert(p1,p1.getELO());
-				eloTree=eloTree.insert(p2,p2.getELO());
-                    break;
-                default:
-                    System.out.println("Invalid command");
-                    break;
+                    default:
+                        out.write("Invalid command\n");
+                        break;
+                }
+                out.flush();
             }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static void batchLoop(TokenReader in, AVLPlayerNode eloTree, PlayerIdIndex idIndex, int numPeople, MatchLog log, Path snapshotPath) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16);
+        // results written before a bad command still reach the output
+        try {
+            boolean keepGoing = true;
+            while (keepGoing && in.hasNext()) {
+                String answer = in.next();
+                switch (answer.charAt(0)) {
+                    case 'X':
+                        keepGoing = false;
+                        break;
+                    case 'A':
+                        eloTree = addPlayer(eloTree, idIndex, new Player(in.next(), in.nextInt(), in.nextDouble()), log, snapshotPath);
+                        numPeople++;
+                        break;
+                    case 'D': {
+                        int id = in.nextInt();
+                        if (numPeople > 3) {
+                            eloTree = removePlayer(eloTree, idIndex, id, log, snapshotPath);
+                            numPeople--;
+                        } else {
+                            out.write("Cannot afford to lose any more people\n");
+                        }
+                        break;
+                    }
+                    case 'R':
+                        printRank(eloTree, idIndex, in.nextInt(), out);
+                        break;
+                    case 'E':
+                        printELO(idIndex, in.nextInt(), out);
+                        break;
+                    case 'L':
+                        printScoreboard(eloTree, out);
+                        break;
+                    case 'P':
+                        printTrees(eloTree, idIndex, out);
+                        break;
+                    case 'M':
+                        eloTree = logMatch(eloTree, idIndex, in.nextInt(), in.nextInt(), in.nextInt(), log, snapshotPath, out);
+                        break;
+                    default:
+                        out.write("Invalid command\n");
+                        break;
+                }
+            }
+            // the end of the script exits like X does
+            if (snapshotPath != null) {
+                saveSnapshot(snapshotPath, eloTree, idIndex, log);
+            }
+        } finally {
+            out.flush();
+        }
+    }
+
+    // applies the records replayed from the match log the way the commands did, with each
+    // run of matches between two player changes moved through the tree as one batch
+    private static class Recovery implements MatchLog.Replay {
+        private AVLPlayerNode eloTree;
+        private final PlayerIdIndex idIndex;
+        private final MatchBatch batch;
+        private long matches;
+        private long playerChanges;
+
+        private Recovery(AVLPlayerNode eloTree, PlayerIdIndex idIndex) {
+            this.eloTree = eloTree;
+            this.idIndex = idIndex;
+            this.batch = new MatchBatch();
+        }
+
+        @Override
+        public void match(int id1, int id2, int outcome) {
+            batch.add(id1, id2, outcome);
+            matches++;
+        }
+
+        @Override
+        public void addPlayer(Player p) {
+            applyBatch();
+            if (eloTree == null) {
+                eloTree = new AVLPlayerNode(p, p.getELO());
+                idIndex.add(p);
+            } else {
+                eloTree = ScoreKeeper.addPlayer(eloTree, idIndex, p, null, null);
+            }
+            playerChanges++;
+        }
+
+        @Override
+        public void removePlayer(int id) {
+            applyBatch();
+            if (eloTree != null && idIndex.get(id) != null) {
+                eloTree = ScoreKeeper.removePlayer(eloTree, idIndex, id, null, null);
+            }
+            playerChanges++;
+        }
+
+        private void applyBatch() {
+            if (batch.size() > 0 && eloTree != null) {
+                eloTree = batch.apply(eloTree, idIndex);
+            }
+            batch.clear();
+        }
+
+        private AVLPlayerNode finish() {
+            applyBatch();
+            return eloTree;
         }
     }
 }
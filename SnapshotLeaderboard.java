@@ -0,0 +1,181 @@
+package main;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class SnapshotLeaderboard {
+    private final AtomicReference<Snapshot> current;
+
+    /**
+     * Constructor, initialize a leaderboard holding copies of the given players
+     * @param players the players, a later player with a duplicate id or ELO is skipped
+     * Runtime: O(n log n), O(n) if players are sorted by ELO
+     */
+    public SnapshotLeaderboard(Player[] players) {
+        PlayerIdIndex ids = new PlayerIdIndex(players.length);
+        Player[] copies = new Player[players.length];
+        int n = 0;
+        for (Player p : players) {
+            if (ids.get(p.getID()) == null) {
+                copies[n] = p.copy();
+                ids.add(copies[n++]);
+            }
+        }
+        copies = Arrays.copyOf(copies, n);
+        PersistentPlayerNode eloTree = PersistentPlayerNode.buildBalanced(copies, Player::getELO);
+        n = 0;
+        for (Player p : copies) {
+            if (eloTree.getPlayer(p.getELO()) == p) {
+                copies[n++] = p;
+            }
+        }
+        PersistentPlayerNode idTree = PersistentPlayerNode.buildBalanced(Arrays.copyOf(copies, n), Player::getID);
+        this.current = new AtomicReference<>(new Snapshot(eloTree, idTree));
+    }
+
+    /**
+     * Get the latest published state of the leaderboard, which never changes afterwards
+     * @return the snapshot
+     * Runtime: O(1), wait-free
+     */
+    public Snapshot snapshot() {
+        return current.get();
+    }
+
+    /**
+     * Add a player to the leaderboard, only one thread may write at a time
+     * @param p the player, which is copied so later changes to it are not seen
+     * @return whether the player was added, false if the id or the ELO is taken
+     * Runtime: O(log n)
+     */
+    public boolean addPlayer(Player p) {
+        Snapshot s = current.get();
+        if (s.getPlayer(p.getID()) != null || (s.eloTree != null && s.eloTree.getPlayer(p.getELO()) != null)) {
+            return false;
+        }
+        Player copy = p.copy();
+        current.set(new Snapshot(
+                s.eloTree == null ? new PersistentPlayerNode(copy, copy.getELO()) : s.eloTree.insert(copy, copy.getELO()),
+                s.idTree == null ? new PersistentPlayerNode(copy, copy.getID()) : s.idTree.insert(copy, copy.getID())));
+        return true;
+    }
+
+    /**
+     * Remove a player from the leaderboard, only one thread may write at a time
+     * @param id the id of the player
+     * @return the removed player, or null if no player has this id
+     * Runtime: O(log n)
+     */
+    public Player removePlayer(int id) {
+        Snapshot s = current.get();
+        Player p = s.getPlayer(id);
+        if (p != null) {
+            PersistentPlayerNode eloTree = s.eloTree.getPlayer(p.getELO()) == p ? s.eloTree.delete(p.getELO()) : s.eloTree;
+            current.set(new Snapshot(eloTree, s.idTree.delete(id)));
+        }
+        return p;
+    }
+
+    /**
+     * Log the outcome of a match, only one thread may write at a time. Both players are
+     * replaced by updated copies so that players in earlier snapshots keep their ratings.
+     * Like addPlayer, a match that would move a player onto an ELO already taken is
+     * rejected, so both trees always hold the same players
+     * @param id1     id of the first player
+     * @param id2     id of the second player
+     * @param outcome 1 if the first player won, 2 if the second player won, 0 for a draw
+     * @return whether the match was applied, false for an unknown id or outcome, or a
+     * new ELO that is taken
+     * Runtime: O(log n)
+     */
+    public boolean logMatch(int id1, int id2, int outcome) {
+        Snapshot s = current.get();
+        Player old1 = s.getPlayer(id1), old2 = s.getPlayer(id2);
+        if (old1 == null || old2 == null || id1 == id2 || outcome < 0 || outcome > 2) {
+            return false;
+        }
+        Player p1 = old1.copy(), p2 = old2.copy();
+        Player.applyOutcome(p1, p2, outcome);
+        PersistentPlayerNode eloTree = s.eloTree.delete(old1.getELO()).delete(old2.getELO());
+        if (p1.getELO() == p2.getELO() || (eloTree != null
+                && (eloTree.getPlayer(p1.getELO()) != null || eloTree.getPlayer(p2.getELO()) != null))) {
+            return false;
+        }
+        eloTree = eloTree == null ? new PersistentPlayerNode(p1, p1.getELO()) : eloTree.insert(p1, p1.getELO());
+        eloTree = eloTree.insert(p2, p2.getELO());
+        // the id keys do not change, so replacing a player is a delete and insert of the same key
+        PersistentPlayerNode idTree = s.idTree.delete(id1).delete(id2);
+        idTree = idTree == null ? new PersistentPlayerNode(p1, id1) : idTree.insert(p1, id1);
+        idTree = idTree.insert(p2, id2);
+        current.set(new Snapshot(eloTree, idTree));
+        return true;
+    }
+
+    /**
+     * Immutable state of the leaderboard at one point in time
+     */
+    public static final class Snapshot {
+        private final PersistentPlayerNode eloTree;
+        private final PersistentPlayerNode idTree;
+
+        /**
+         * Constructor, initialize a snapshot over two trees holding the same players
+         * @param eloTree the players keyed by ELO, null if there are none
+         * @param idTree  the players keyed by id, null if there are none
+         * Runtime: O(1)
+         */
+        private Snapshot(PersistentPlayerNode eloTree, PersistentPlayerNode idTree) {
+            this.eloTree = eloTree;
+            this.idTree = idTree;
+        }
+
+        /**
+         * Get the player with given id
+         * @param id the id of the player
+         * @return the player, or null if no player has this id
+         * Runtime: O(log n)
+         */
+        public Player getPlayer(int id) {
+            return idTree != null ? idTree.getPlayer(id) : null;
+        }
+
+        /**
+         * Get the rank of the player with given id
+         * @param id the id of the player
+         * @return the rank, 1 being the highest ELO, or -1 if no player has this id
+         * Runtime: O(log n)
+         */
+        public int getRank(int id) {
+            Player p = getPlayer(id);
+            return p != null ? eloTree.getRank(p.getELO()) : -1;
+        }
+
+        /**
+         * Get the player at a given rank
+         * @param rank the rank, 1 being the highest ELO
+         * @return the player, or null if rank is out of range
+         * Runtime: O(log n)
+         */
+        public Player getPlayerAtRank(int rank) {
+            return eloTree != null ? eloTree.getPlayerAtRank(rank) : null;
+        }
+
+        /**
+         * Getter method for size
+         * @return number of players in the snapshot
+         * Runtime: O(1)
+         */
+        public int size() {
+            return idTree != null ? idTree.size() : 0;
+        }
+
+        /**
+         * Getter method for the ELO tree
+         * @return root of the players keyed by ELO, null if there are none
+         * Runtime: O(1)
+         */
+        public PersistentPlayerNode getEloTree() {
+            return eloTree;
+        }
+    }
+}
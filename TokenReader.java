@@ -0,0 +1,268 @@
+package main;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+
+public class TokenReader implements Closeable {
+    // every power of ten that a double holds exactly
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final ReadableByteChannel channel;
+    private byte[] bytes;
+    private int pos;
+    private int limit;
+    private boolean eof;
+
+    /**
+     * Constructor, initialize a reader of the tokens in a channel. Tokens are separated by
+     * whitespace or commas, so both CSV and TSV lines read as a run of tokens
+     * @param channel the channel to read from
+     * Runtime: O(1)
+     */
+    public TokenReader(ReadableByteChannel channel) {
+        this.channel = channel;
+        this.bytes = new byte[1 << 16];
+        this.pos = 0;
+        this.limit = 0;
+        this.eof = false;
+    }
+
+    /**
+     * Open a reader of the tokens in a file
+     * @param path the file
+     * @return the reader
+     * @throws IOException if the file cannot be opened
+     * Runtime: O(1)
+     */
+    public static TokenReader open(Path path) throws IOException {
+        return new TokenReader(FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    /**
+     * Check if a byte separates tokens, bytes of multi-byte UTF-8 characters never do
+     * @param b the byte
+     * @return whether it is whitespace or a comma
+     * Runtime: O(1)
+     */
+    private static boolean isDelimiter(byte b) {
+        return (b >= 0 && b <= ' ') || b == ',';
+    }
+
+    /**
+     * Move the unread bytes to the front of the buffer and read more after them, growing
+     * the buffer if a single token fills it
+     * @return whether any bytes were read
+     * @throws IOException if the channel cannot be read
+     * Runtime: O(buffer size)
+     */
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        if (pos == 0 && limit == bytes.length) {
+            bytes = Arrays.copyOf(bytes, bytes.length * 2);
+        } else {
+            System.arraycopy(bytes, pos, bytes, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        }
+        ByteBuffer buf = ByteBuffer.wrap(bytes, limit, bytes.length - limit);
+        int read;
+        do {
+            read = channel.read(buf);
+        } while (read == 0);
+        if (read < 0) {
+            eof = true;
+            return false;
+        }
+        limit += read;
+        return true;
+    }
+
+    /**
+     * Check if there is another token, skipping the delimiters before it
+     * @return whether there is another token
+     * @throws IOException if the channel cannot be read
+     * Runtime: O(length of the skipped delimiters)
+     */
+    public boolean hasNext() throws IOException {
+        while (true) {
+            while (pos < limit) {
+                if (!isDelimiter(bytes[pos])) {
+                    return true;
+                }
+                pos++;
+            }
+            if (!fill()) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Find the end of the next token, making sure all of it is in the buffer. The token
+     * is then bytes[pos, end)
+     * @return index just past the last byte of the token
+     * @throws IOException if the channel cannot be read
+     * @throws NoSuchElementException if there are no more tokens
+     * Runtime: O(length of the token)
+     */
+    private int tokenEnd() throws IOException {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        int end = pos;
+        while (true) {
+            while (end < limit) {
+                if (isDelimiter(bytes[end])) {
+                    return end;
+                }
+                end++;
+            }
+            int start = pos;
+            if (!fill()) {
+                return end;
+            }
+            end -= start - pos;
+        }
+    }
+
+    /**
+     * Read the next token
+     * @return the token
+     * @throws IOException if the channel cannot be read
+     * @throws NoSuchElementException if there are no more tokens
+     * Runtime: O(length of the token)
+     */
+    public String next() throws IOException {
+        int end = tokenEnd();
+        String token = new String(bytes, pos, end - pos, StandardCharsets.UTF_8);
+        pos = end;
+        return token;
+    }
+
+    /**
+     * Read the next token as an int
+     * @return the int
+     * @throws IOException if the channel cannot be read
+     * @throws NoSuchElementException if there are no more tokens
+     * @throws InputMismatchException if the token is not an int
+     * Runtime: O(length of the token)
+     */
+    public int nextInt() throws IOException {
+        int end = tokenEnd();
+        int i = pos;
+        boolean negative = bytes[i] == '-';
+        if (negative || bytes[i] == '+') {
+            i++;
+        }
+        long value = 0;
+        if (i == end || end - i > 10) {
+            throw mismatch(end);
+        }
+        for (; i < end; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw mismatch(end);
+            }
+            value = value * 10 + digit;
+        }
+        value = negative ? -value : value;
+        if (value != (int) value) {
+            throw mismatch(end);
+        }
+        pos = end;
+        return (int) value;
+    }
+
+    /**
+     * Read the next token as a double. Plain decimals with at most 15 significant digits
+     * and a small exponent are exact as one multiplication or division of two exactly
+     * held doubles, which rounds correctly, anything else goes through Double.parseDouble
+     * @return the double
+     * @throws IOException if the channel cannot be read
+     * @throws NoSuchElementException if there are no more tokens
+     * @throws InputMismatchException if the token is not a number
+     * Runtime: O(length of the token)
+     */
+    public double nextDouble() throws IOException {
+        int end = tokenEnd();
+        int i = pos;
+        boolean negative = bytes[i] == '-';
+        if (negative || bytes[i] == '+') {
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0, exponent = 0;
+        boolean seenDigit = false, seenPoint = false, fast = true;
+        for (; i < end; i++) {
+            byte b = bytes[i];
+            if (b >= '0' && b <= '9') {
+                seenDigit = true;
+                // leading zeros are not significant digits
+                if (mantissa != 0 || b != '0') {
+                    if (++digits <= 15) {
+                        mantissa = mantissa * 10 + (b - '0');
+                    } else {
+                        fast = false;
+                    }
+                }
+                if (seenPoint) {
+                    exponent--;
+                }
+            } else if (b == '.' && !seenPoint) {
+                seenPoint = true;
+            } else {
+                fast = false;
+                break;
+            }
+        }
+        double value;
+        if (fast && seenDigit && exponent >= -22) {
+            value = exponent == 0 ? mantissa : mantissa / POWERS_OF_TEN[-exponent];
+            value = negative ? -value : value;
+        } else {
+            try {
+                value = Double.parseDouble(new String(bytes, pos, end - pos, StandardCharsets.US_ASCII));
+            } catch (NumberFormatException e) {
+                throw mismatch(end);
+            }
+        }
+        pos = end;
+        return value;
+    }
+
+    /**
+     * Make the exception for a token that is not the expected kind, skipping over it
+     * @param end index just past the last byte of the token
+     * @return the exception
+     * Runtime: O(length of the token)
+     */
+    private InputMismatchException mismatch(int end) {
+        String token = new String(bytes, pos, end - pos, StandardCharsets.UTF_8);
+        pos = end;
+        return new InputMismatchException(token);
+    }
+
+    /**
+     * Close the channel
+     * @throws IOException if the channel cannot be closed
+     * Runtime: O(1)
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}